@@ -0,0 +1,281 @@
+package de.pkreutzer.modelfilter.benchmark;
+
+import de.pkreutzer.modelfilter.InView;
+import de.pkreutzer.modelfilter.View;
+
+import java.util.List;
+import java.util.ArrayList;
+
+// models of the benchmarks, each with a hand-written copy as baseline (what the filter has to compete with)
+public final class BenchmarkModels {
+
+  private BenchmarkModels() {
+    // namespace
+  }
+
+  // ==================================================================================
+  //       V I E W S
+  // ==================================================================================
+
+  public static interface Summary extends View {}
+  public static interface Details extends Summary {}
+
+  // hierarchy of roles, each role sees the fields of its super-roles
+  public static interface Role00 extends View {}
+  public static interface Role01 extends Role00 {}
+  public static interface Role02 extends Role01 {}
+  public static interface Role03 extends Role02 {}
+  public static interface Role04 extends Role03 {}
+  public static interface Role05 extends Role04 {}
+  public static interface Role06 extends Role05 {}
+  public static interface Role07 extends Role06 {}
+  public static interface Role08 extends Role07 {}
+  public static interface Role09 extends Role08 {}
+  public static interface Role10 extends Role00 {}
+  public static interface Role11 extends Role10 {}
+  public static interface Role12 extends Role11 {}
+  public static interface Role13 extends Role12 {}
+  public static interface Role14 extends Role13 {}
+  public static interface Role15 extends Role14 {}
+  public static interface Role16 extends Role15 {}
+  public static interface Role17 extends Role16 {}
+  public static interface Role18 extends Role17 {}
+  public static interface Role19 extends Role18 {}
+
+  // ==================================================================================
+  //       F L A T
+  // ==================================================================================
+
+  public static final class FlatDto {
+
+    @InView(Summary.class) public long id;
+    @InView(Summary.class) public String name;
+    @InView(Summary.class) public int count;
+    @InView(Summary.class) public double value;
+    @InView(Details.class) public String description;
+    @InView(Details.class) public long created;
+    public String secret;
+    public long internalId;
+    public double internalScore;
+    public boolean deleted;
+
+    public static final FlatDto create(final int index) {
+      final FlatDto dto = new FlatDto();
+      dto.id = index;
+      dto.name = "name" + index;
+      dto.count = index % 100;
+      dto.value = index * .5;
+      dto.description = "description" + index;
+      dto.created = 1500000000000L + index;
+      dto.secret = "secret" + index;
+      dto.internalId = -index;
+      dto.internalScore = index * 2.;
+      dto.deleted = index % 2 == 0;
+      return dto;
+    }
+
+    // baseline for the Summary view
+    public final FlatDto copySummary() {
+      final FlatDto copy = new FlatDto();
+      copy.id = this.id;
+      copy.name = this.name;
+      copy.count = this.count;
+      copy.value = this.value;
+      return copy;
+    }
+
+  }
+
+  // ==================================================================================
+  //       D E E P   I N H E R I T A N C E
+  // ==================================================================================
+
+  public static class Level0 {
+    @InView(Summary.class) public String level0Name;
+    public String level0Secret;
+  }
+
+  public static class Level1 extends Level0 {
+    @InView(Summary.class) public int level1Count;
+    public int level1Secret;
+  }
+
+  public static class Level2 extends Level1 {
+    @InView(Summary.class) public double level2Value;
+    public double level2Secret;
+  }
+
+  public static class Level3 extends Level2 {
+    @InView(Summary.class) public String level3Name;
+    public String level3Secret;
+  }
+
+  public static final class Level4 extends Level3 {
+
+    @InView(Summary.class) public long level4Id;
+    public long level4Secret;
+
+    public static final Level4 create(final int index) {
+      final Level4 object = new Level4();
+      object.level0Name = "level0";
+      object.level0Secret = "secret0";
+      object.level1Count = index;
+      object.level1Secret = -index;
+      object.level2Value = index * .5;
+      object.level2Secret = -index * .5;
+      object.level3Name = "level3";
+      object.level3Secret = "secret3";
+      object.level4Id = index;
+      object.level4Secret = -index;
+      return object;
+    }
+
+    public final Level4 copySummary() {
+      final Level4 copy = new Level4();
+      copy.level0Name = this.level0Name;
+      copy.level1Count = this.level1Count;
+      copy.level2Value = this.level2Value;
+      copy.level3Name = this.level3Name;
+      copy.level4Id = this.level4Id;
+      return copy;
+    }
+
+  }
+
+  // ==================================================================================
+  //       C O L L E C T I O N S   A N D   A R R A Y S
+  // ==================================================================================
+
+  public static final class Catalog {
+
+    @InView(Summary.class) public List<FlatDto> items;
+    @InView(Summary.class) public FlatDto[] featured;
+    // payload that can not reach filtered classes
+    @InView(Summary.class) public String[] tags;
+
+    public static final Catalog create(final int size) {
+      final Catalog catalog = new Catalog();
+      catalog.items = new ArrayList<FlatDto>(size);
+      catalog.featured = new FlatDto[size];
+      catalog.tags = new String[size];
+      for (int index = 0; index < size; ++index) {
+        catalog.items.add(FlatDto.create(index));
+        catalog.featured[index] = catalog.items.get(index);
+        catalog.tags[index] = "tag" + index;
+      }
+      return catalog;
+    }
+
+    // does not preserve the sharing of items and featured (the filter does)
+    public final Catalog copySummary() {
+      final Catalog copy = new Catalog();
+      copy.items = new ArrayList<FlatDto>(this.items.size());
+      for (final FlatDto item : this.items) {
+        copy.items.add(item.copySummary());
+      }
+      copy.featured = new FlatDto[this.featured.length];
+      for (int index = 0; index < this.featured.length; ++index) {
+        copy.featured[index] = this.featured[index].copySummary();
+      }
+      copy.tags = this.tags.clone();
+      return copy;
+    }
+
+  }
+
+  // ==================================================================================
+  //       C Y C L E S
+  // ==================================================================================
+
+  public static final class Node {
+
+    @InView(Summary.class) public String name;
+    @InView(Summary.class) public Node parent;
+    @InView(Summary.class) public List<Node> children;
+    public String secret;
+
+    // tree with back references to the parents
+    public static final Node create(final Node parent, final int depth, final int fanOut) {
+      final Node node = new Node();
+      node.name = "node" + depth;
+      node.secret = "secret";
+      node.parent = parent;
+      node.children = new ArrayList<Node>(fanOut);
+      if (depth > 0) {
+        for (int index = 0; index < fanOut; ++index) {
+          node.children.add(create(node, depth - 1, fanOut));
+        }
+      }
+      return node;
+    }
+
+    public final Node copySummary(final Node parentCopy) {
+      final Node copy = new Node();
+      copy.name = this.name;
+      copy.parent = parentCopy;
+      copy.children = new ArrayList<Node>(this.children.size());
+      for (final Node child : this.children) {
+        copy.children.add(child.copySummary(copy));
+      }
+      return copy;
+    }
+
+  }
+
+  // ==================================================================================
+  //       V I E W   H I E R A R C H I E S
+  // ==================================================================================
+
+  public static final class RoleDto {
+
+    @InView(Role00.class) public String field00;
+    @InView(Role01.class) public String field01;
+    @InView(Role02.class) public String field02;
+    @InView(Role03.class) public String field03;
+    @InView(Role04.class) public String field04;
+    @InView(Role05.class) public String field05;
+    @InView(Role06.class) public String field06;
+    @InView(Role07.class) public String field07;
+    @InView(Role08.class) public String field08;
+    @InView(Role09.class) public String field09;
+    @InView(Role10.class) public String field10;
+    @InView(Role11.class) public String field11;
+    @InView(Role12.class) public String field12;
+    @InView(Role13.class) public String field13;
+    @InView(Role14.class) public String field14;
+    @InView(Role15.class) public String field15;
+    @InView(Role16.class) public String field16;
+    @InView(Role17.class) public String field17;
+    @InView(Role18.class) public String field18;
+    @InView(Role19.class) public String field19;
+
+    public static final RoleDto create() {
+      final RoleDto dto = new RoleDto();
+      dto.field00 = dto.field01 = dto.field02 = dto.field03 = dto.field04 = "value";
+      dto.field05 = dto.field06 = dto.field07 = dto.field08 = dto.field09 = "value";
+      dto.field10 = dto.field11 = dto.field12 = dto.field13 = dto.field14 = "value";
+      dto.field15 = dto.field16 = dto.field17 = dto.field18 = dto.field19 = "value";
+      return dto;
+    }
+
+    // baseline for the views Role05 and Role15
+    public final RoleDto copyRoles() {
+      final RoleDto copy = new RoleDto();
+      copy.field00 = this.field00;
+      copy.field01 = this.field01;
+      copy.field02 = this.field02;
+      copy.field03 = this.field03;
+      copy.field04 = this.field04;
+      copy.field05 = this.field05;
+      copy.field10 = this.field10;
+      copy.field11 = this.field11;
+      copy.field12 = this.field12;
+      copy.field13 = this.field13;
+      copy.field14 = this.field14;
+      copy.field15 = this.field15;
+      return copy;
+    }
+
+  }
+
+}
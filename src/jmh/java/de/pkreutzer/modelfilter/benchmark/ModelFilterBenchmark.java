@@ -0,0 +1,200 @@
+package de.pkreutzer.modelfilter.benchmark;
+
+import de.pkreutzer.modelfilter.AccessStrategy;
+import de.pkreutzer.modelfilter.ModelFilter;
+import static de.pkreutzer.modelfilter.benchmark.BenchmarkModels.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// run by "gradle jmh", e.g. "gradle jmh -Pjmh.includes=flat" for the benchmarks of flat objects only;
+// every workload is measured with the static filter, a pre-built filter and a hand-written copy (baseline)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModelFilterBenchmark {
+
+  // only the catalog benchmarks depend on the size, the other workloads are not run once per size
+  @State(Scope.Benchmark)
+  public static class CatalogState {
+
+    @Param({ "1000", "100000" })
+    public int size;
+
+    private Catalog catalog;
+    private ModelFilter catalogFilter;
+
+    @Setup
+    public void setUp() {
+      this.catalog = Catalog.create(this.size);
+      this.catalogFilter = ModelFilter.buildFilter().
+                             forClasses(Catalog.class, FlatDto.class).
+                             useView(Summary.class).
+                             build();
+    }
+
+  }
+
+  // the flat and deep workloads once per access strategy, e.g. "gradle jmh -Pjmh.includes=ByStrategy"
+  @State(Scope.Benchmark)
+  public static class AccessStrategyState {
+
+    @Param({ "GENERATED", "REFLECTION", "METHOD_HANDLES" })
+    public AccessStrategy accessStrategy;
+
+    private ModelFilter flatFilter;
+    private ModelFilter deepFilter;
+
+    @Setup
+    public void setUp() {
+      this.flatFilter = ModelFilter.buildFilter().
+                          forClass(FlatDto.class).
+                          useView(Summary.class).
+                          useAccessStrategy(this.accessStrategy).
+                          build();
+      this.deepFilter = ModelFilter.buildFilter().
+                          forClass(Level4.class).
+                          useView(Summary.class).
+                          useAccessStrategy(this.accessStrategy).
+                          build();
+    }
+
+  }
+
+  private FlatDto flat;
+  private Level4 deep;
+  private Node tree;
+  private RoleDto roles;
+
+  private ModelFilter flatFilter;
+  private ModelFilter deepFilter;
+  private ModelFilter treeFilter;
+  private ModelFilter rolesFilter;
+
+  @Setup
+  public void setUp() {
+    this.flat = FlatDto.create(42);
+    this.deep = Level4.create(42);
+    // 1 + 4 + 16 + 64 + 256 + 1024 nodes
+    this.tree = Node.create(null, 5, 4);
+    this.roles = RoleDto.create();
+
+    this.flatFilter = ModelFilter.buildFilter().forClass(FlatDto.class).useView(Summary.class).build();
+    this.deepFilter = ModelFilter.buildFilter().forClass(Level4.class).useView(Summary.class).build();
+    this.treeFilter = ModelFilter.buildFilter().forClass(Node.class).useView(Summary.class).build();
+    this.rolesFilter = ModelFilter.buildFilter().
+                         forClass(RoleDto.class).
+                         useViews(Role05.class, Role15.class).
+                         build();
+  }
+
+  // ==================================================================================
+  //       F L A T
+  // ==================================================================================
+
+  @Benchmark
+  public FlatDto flatStaticFilter() {
+    return ModelFilter.filter(this.flat, Summary.class);
+  }
+
+  @Benchmark
+  public FlatDto flatApplyTo() {
+    return this.flatFilter.applyTo(this.flat);
+  }
+
+  @Benchmark
+  public FlatDto flatApplyToByStrategy(final AccessStrategyState state) {
+    return state.flatFilter.applyTo(this.flat);
+  }
+
+  @Benchmark
+  public FlatDto flatByHand() {
+    return this.flat.copySummary();
+  }
+
+  // ==================================================================================
+  //       D E E P   I N H E R I T A N C E
+  // ==================================================================================
+
+  @Benchmark
+  public Level4 deepStaticFilter() {
+    return ModelFilter.filter(this.deep, Summary.class);
+  }
+
+  @Benchmark
+  public Level4 deepApplyTo() {
+    return this.deepFilter.applyTo(this.deep);
+  }
+
+  @Benchmark
+  public Level4 deepApplyToByStrategy(final AccessStrategyState state) {
+    return state.deepFilter.applyTo(this.deep);
+  }
+
+  @Benchmark
+  public Level4 deepByHand() {
+    return this.deep.copySummary();
+  }
+
+  // ==================================================================================
+  //       C O L L E C T I O N S   A N D   A R R A Y S
+  // ==================================================================================
+
+  @Benchmark
+  public Catalog catalogApplyTo(final CatalogState state) {
+    return state.catalogFilter.applyTo(state.catalog);
+  }
+
+  @Benchmark
+  public Catalog catalogByHand(final CatalogState state) {
+    return state.catalog.copySummary();
+  }
+
+  // ==================================================================================
+  //       C Y C L E S
+  // ==================================================================================
+
+  @Benchmark
+  public Node treeApplyTo() {
+    return this.treeFilter.applyTo(this.tree);
+  }
+
+  @Benchmark
+  public Node treeByHand() {
+    return this.tree.copySummary(null);
+  }
+
+  // ==================================================================================
+  //       V I E W   H I E R A R C H I E S
+  // ==================================================================================
+
+  @Benchmark
+  public RoleDto rolesStaticFilter() {
+    return ModelFilter.filter(this.roles, Role05.class, Role15.class);
+  }
+
+  @Benchmark
+  public RoleDto rolesApplyTo() {
+    return this.rolesFilter.applyTo(this.roles);
+  }
+
+  @Benchmark
+  public RoleDto rolesByHand() {
+    return this.roles.copyRoles();
+  }
+
+}
@@ -0,0 +1,14 @@
+package de.pkreutzer.modelfilter;
+
+public enum AccessStrategy {
+
+  // filter generated at compile time by the annotation processor, REFLECTION if there is none (default)
+  GENERATED,
+
+  // java.lang.reflect.Field / Constructor
+  REFLECTION,
+
+  // one java.lang.invoke.MethodHandle per class and views, composed of the handles of its fields
+  METHOD_HANDLES
+
+}
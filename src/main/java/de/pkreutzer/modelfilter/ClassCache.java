@@ -0,0 +1,95 @@
+package de.pkreutzer.modelfilter;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// static cache of values per class that does not pin class loaders. A ClassValue entry is kept alive by its
+// class, so values of classes of the JDK (or other ancestors of the loader of this library) must not reach this
+// library: they are kept in a map owned by the cache instead, those classes outlive this library anyway. Values
+// of classes of this loader and its descendants are stored with the class, classes of unrelated loaders are not
+// cached at all.
+abstract class ClassCache<V> {
+
+  private static final Integer OWN_LOADER = Integer.valueOf(0);
+  private static final Integer ANCESTOR_LOADER = Integer.valueOf(1);
+  private static final Integer UNRELATED_LOADER = Integer.valueOf(2);
+
+  // Integer values can not reach this library, so they may be stored with any class
+  private static final ClassValue<Integer> relations = new ClassValue<Integer>() {
+    @Override
+    protected final Integer computeValue(final Class<?> theClass) {
+      return relationOf(theClass);
+    }
+  };
+
+  private final ClassValue<V> ownValues;
+  private final ConcurrentMap<Class<?>, V> ancestorValues;
+
+  protected ClassCache() {
+    this.ownValues = new ClassValue<V>() {
+      @Override
+      protected final V computeValue(final Class<?> theClass) {
+        return ClassCache.this.computeValue(theClass);
+      }
+    };
+    this.ancestorValues = new ConcurrentHashMap<Class<?>, V>();
+  }
+
+  // must not return null
+  protected abstract V computeValue(final Class<?> theClass);
+
+  public final V get(final Class<?> theClass) {
+    final Integer relation = relations.get(theClass);
+
+    if (relation == OWN_LOADER) {
+      return this.ownValues.get(theClass);
+    } else if (relation == UNRELATED_LOADER) {
+      return computeValue(theClass);
+    }
+
+    V value = this.ancestorValues.get(theClass);
+    if (value == null) {
+      value = computeValue(theClass);
+
+      final V existingValue = this.ancestorValues.putIfAbsent(theClass, value);
+      if (existingValue != null) {
+        value = existingValue;
+      }
+    }
+
+    return value;
+  }
+
+  private static final Integer relationOf(final Class<?> theClass) {
+    final ClassLoader ownLoader = ClassCache.class.getClassLoader();
+    final ClassLoader classLoader = theClass.getClassLoader();
+
+    if (ownLoader == null) {
+      // loaded by the bootstrap class loader itself
+      return OWN_LOADER;
+    }
+
+    try {
+      for (ClassLoader loader = classLoader; loader != null; loader = loader.getParent()) {
+        if (loader == ownLoader) {
+          return OWN_LOADER;
+        }
+      }
+
+      if (classLoader == null) {
+        // the JDK, primitive types and arrays of them
+        return ANCESTOR_LOADER;
+      }
+      for (ClassLoader loader = ownLoader.getParent(); loader != null; loader = loader.getParent()) {
+        if (loader == classLoader) {
+          return ANCESTOR_LOADER;
+        }
+      }
+    } catch (final SecurityException exception) {
+      // parents are not accessible, do not cache
+    }
+
+    return UNRELATED_LOADER;
+  }
+
+}
@@ -7,6 +7,8 @@ public final class CloningFailedException extends RuntimeException {
   public CloningFailedException(final Throwable cause, final Object objectToClone) {
     super(cause);
     this.objectToClone = objectToClone;
+
+    FilterEvents.cloningFailed(objectToClone, cause);
   }
 
   public final Object getObjectToClone() {
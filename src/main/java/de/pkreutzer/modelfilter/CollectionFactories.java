@@ -0,0 +1,476 @@
+package de.pkreutzer.modelfilter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.Vector;
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.SortedSet;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.NavigableMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.TreeMap;
+import java.util.EnumSet;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Supplier;
+
+import java.lang.reflect.Modifier;
+
+// default collection factories of the JDK collections: presized where possible, unmodifiable and immutable
+// collections are copied into unmodifiable wrappers, synchronized ones into synchronized wrappers, constructor-less
+// views (Arrays.asList, subList) into lists; checked collections and sets backed by maps are rejected, as their
+// element type (or map) is not accessible
+final class CollectionFactories {
+
+  private static final CollectionFactory ARRAY_LIST = new CollectionFactory() {
+    @Override
+    public final Collection<Object> newTarget(final Collection<?> original, final int size) {
+      return new ArrayList<Object>(size);
+    }
+
+    @Override
+    public final boolean requiresCompleteElements() {
+      return false;
+    }
+  };
+
+  private static final CollectionFactory LINKED_LIST = new CollectionFactory() {
+    @Override
+    public final Collection<Object> newTarget(final Collection<?> original, final int size) {
+      return new LinkedList<Object>();
+    }
+
+    @Override
+    public final boolean requiresCompleteElements() {
+      return false;
+    }
+  };
+
+  private static final CollectionFactory VECTOR = new CollectionFactory() {
+    @Override
+    public final Collection<Object> newTarget(final Collection<?> original, final int size) {
+      return new Vector<Object>(Math.max(size, 1));
+    }
+
+    @Override
+    public final boolean requiresCompleteElements() {
+      return false;
+    }
+  };
+
+  private static final CollectionFactory ARRAY_DEQUE = new CollectionFactory() {
+    @Override
+    public final Collection<Object> newTarget(final Collection<?> original, final int size) {
+      return new ArrayDeque<Object>(size);
+    }
+
+    @Override
+    public final boolean requiresCompleteElements() {
+      return false;
+    }
+  };
+
+  private static final CollectionFactory HASH_SET = new CollectionFactory() {
+    @Override
+    public final Collection<Object> newTarget(final Collection<?> original, final int size) {
+      return new HashSet<Object>(capacityFor(size));
+    }
+  };
+
+  private static final CollectionFactory LINKED_HASH_SET = new CollectionFactory() {
+    @Override
+    public final Collection<Object> newTarget(final Collection<?> original, final int size) {
+      return new LinkedHashSet<Object>(capacityFor(size));
+    }
+  };
+
+  private static final CollectionFactory TREE_SET = new CollectionFactory() {
+    @Override
+    @SuppressWarnings("unchecked")
+    public final Collection<Object> newTarget(final Collection<?> original, final int size) {
+      return new TreeSet<Object>(((SortedSet<Object>) original).comparator());
+    }
+  };
+
+  private static final CollectionFactory CONCURRENT_SKIP_LIST_SET = new CollectionFactory() {
+    @Override
+    @SuppressWarnings("unchecked")
+    public final Collection<Object> newTarget(final Collection<?> original, final int size) {
+      return new ConcurrentSkipListSet<Object>(((SortedSet<Object>) original).comparator());
+    }
+  };
+
+  private static final CollectionFactory ENUM_SET = new CollectionFactory() {
+    @Override
+    @SuppressWarnings("unchecked")
+    public final Collection<Object> newTarget(final Collection<?> original, final int size) {
+      // the element type is only available by copying (like EnumMap in newMap)
+      final EnumSet<?> clonedSet = ((EnumSet<?>) original).clone();
+      clonedSet.clear();
+      return (Collection<Object>) (Collection<?>) clonedSet;
+    }
+
+    @Override
+    public final boolean requiresCompleteElements() {
+      return false;
+    }
+  };
+
+  private static final CollectionFactory UNMODIFIABLE_COLLECTION = new CollectionFactory() {
+    @Override
+    public final Collection<Object> newTarget(final Collection<?> original, final int size) {
+      return new ArrayList<Object>(size);
+    }
+
+    @Override
+    public final Object wrap(final Collection<Object> target) {
+      return Collections.unmodifiableCollection(target);
+    }
+
+    @Override
+    public final boolean requiresCompleteElements() {
+      return false;
+    }
+  };
+
+  private static final CollectionFactory UNMODIFIABLE_LIST = new CollectionFactory() {
+    @Override
+    public final Collection<Object> newTarget(final Collection<?> original, final int size) {
+      return new ArrayList<Object>(size);
+    }
+
+    @Override
+    public final Object wrap(final Collection<Object> target) {
+      return Collections.unmodifiableList((List<Object>) target);
+    }
+
+    @Override
+    public final boolean requiresCompleteElements() {
+      return false;
+    }
+  };
+
+  private static final CollectionFactory UNMODIFIABLE_SET = new CollectionFactory() {
+    @Override
+    public final Collection<Object> newTarget(final Collection<?> original, final int size) {
+      // keeps the iteration order of the original
+      return new LinkedHashSet<Object>(capacityFor(size));
+    }
+
+    @Override
+    public final Object wrap(final Collection<Object> target) {
+      return Collections.unmodifiableSet((Set<Object>) target);
+    }
+  };
+
+  private static final CollectionFactory UNMODIFIABLE_SORTED_SET = new CollectionFactory() {
+    @Override
+    @SuppressWarnings("unchecked")
+    public final Collection<Object> newTarget(final Collection<?> original, final int size) {
+      return new TreeSet<Object>(((SortedSet<Object>) original).comparator());
+    }
+
+    @Override
+    public final Object wrap(final Collection<Object> target) {
+      return Collections.unmodifiableNavigableSet((NavigableSet<Object>) target);
+    }
+  };
+
+  private static final CollectionFactory SYNCHRONIZED_COLLECTION = new CollectionFactory() {
+    @Override
+    public final Collection<Object> newTarget(final Collection<?> original, final int size) {
+      return new ArrayList<Object>(size);
+    }
+
+    @Override
+    public final Object wrap(final Collection<Object> target) {
+      return Collections.synchronizedCollection(target);
+    }
+
+    @Override
+    public final boolean requiresCompleteElements() {
+      return false;
+    }
+  };
+
+  private static final CollectionFactory SYNCHRONIZED_LIST = new CollectionFactory() {
+    @Override
+    public final Collection<Object> newTarget(final Collection<?> original, final int size) {
+      return new ArrayList<Object>(size);
+    }
+
+    @Override
+    public final Object wrap(final Collection<Object> target) {
+      return Collections.synchronizedList((List<Object>) target);
+    }
+
+    @Override
+    public final boolean requiresCompleteElements() {
+      return false;
+    }
+  };
+
+  private static final CollectionFactory SYNCHRONIZED_SET = new CollectionFactory() {
+    @Override
+    public final Collection<Object> newTarget(final Collection<?> original, final int size) {
+      return new LinkedHashSet<Object>(capacityFor(size));
+    }
+
+    @Override
+    public final Object wrap(final Collection<Object> target) {
+      return Collections.synchronizedSet((Set<Object>) target);
+    }
+  };
+
+  private static final CollectionFactory SYNCHRONIZED_SORTED_SET = new CollectionFactory() {
+    @Override
+    @SuppressWarnings("unchecked")
+    public final Collection<Object> newTarget(final Collection<?> original, final int size) {
+      return new TreeSet<Object>(((SortedSet<Object>) original).comparator());
+    }
+
+    @Override
+    public final Object wrap(final Collection<Object> target) {
+      return Collections.synchronizedNavigableSet((NavigableSet<Object>) target);
+    }
+  };
+
+  // checked collections (Collections.checkedList etc.) and sets backed by maps (Collections.newSetFromMap)
+  private static final CollectionFactory UNSUPPORTED = new CollectionFactory() {
+    @Override
+    public final Collection<Object> newTarget(final Collection<?> original, final int size) {
+      throw new UnsupportedOperationException("collection can not be copied without changing its semantics, "
+                                              + "register a collection factory: " + original.getClass().getName());
+    }
+  };
+
+  // see ClassCache, the defaults are mostly computed for classes of the JDK
+  private static final ClassCache<CollectionFactory> defaults = new ClassCache<CollectionFactory>() {
+    @Override
+    protected final CollectionFactory computeValue(final Class<?> theClass) {
+      return defaultFactoryOf(theClass);
+    }
+  };
+
+  private CollectionFactories() {
+    // utility class
+  }
+
+  public static final CollectionFactory defaultFor(final Class<?> theClass) {
+    return defaults.get(theClass);
+  }
+
+  // collections created by a factory registered by ModelFilter.Builder.withFactory
+  public static final CollectionFactory of(final Supplier<?> factory) {
+    final Instantiator instantiator = Instantiator.of(factory);
+
+    return new CollectionFactory() {
+      @Override
+      @SuppressWarnings("unchecked")
+      public final Collection<Object> newTarget(final Collection<?> original, final int size) throws Throwable {
+        return (Collection<Object>) instantiator.newInstance();
+      }
+    };
+  }
+
+  private static final CollectionFactory defaultFactoryOf(final Class<?> theClass) {
+    if (theClass == ArrayList.class) {
+      return ARRAY_LIST;
+    } else if (theClass == LinkedList.class) {
+      return LINKED_LIST;
+    } else if (theClass == Vector.class) {
+      return VECTOR;
+    } else if (theClass == ArrayDeque.class) {
+      return ARRAY_DEQUE;
+    } else if (theClass == HashSet.class) {
+      return HASH_SET;
+    } else if (theClass == LinkedHashSet.class) {
+      return LINKED_HASH_SET;
+    } else if (theClass == TreeSet.class) {
+      return TREE_SET;
+    } else if (theClass == ConcurrentSkipListSet.class) {
+      return CONCURRENT_SKIP_LIST_SET;
+    } else if (EnumSet.class.isAssignableFrom(theClass)) {
+      // RegularEnumSet, JumboEnumSet
+      return ENUM_SET;
+    }
+
+    // other collections of the JDK that can not be created by a constructor, e.g., Arrays.asList, subList views,
+    // Collections.unmodifiableList or List.of (the copy is an unmodifiable wrapper, not the immutable class)
+    if (theClass.getClassLoader() == null && !Modifier.isPublic(theClass.getModifiers())) {
+      final String name = theClass.getName();
+      if (name.startsWith("java.util.Collections$Checked") || name.equals("java.util.Collections$SetFromMap")) {
+        return UNSUPPORTED;
+      }
+
+      if (name.startsWith("java.util.Collections$Synchronized")) {
+        if (SortedSet.class.isAssignableFrom(theClass)) {
+          return SYNCHRONIZED_SORTED_SET;
+        } else if (Set.class.isAssignableFrom(theClass)) {
+          return SYNCHRONIZED_SET;
+        } else if (List.class.isAssignableFrom(theClass)) {
+          return SYNCHRONIZED_LIST;
+        }
+        return SYNCHRONIZED_COLLECTION;
+      }
+
+      final boolean isUnmodifiable = isUnmodifiable(theClass);
+
+      if (SortedSet.class.isAssignableFrom(theClass)) {
+        return isUnmodifiable ? UNMODIFIABLE_SORTED_SET : TREE_SET;
+      } else if (Set.class.isAssignableFrom(theClass)) {
+        return isUnmodifiable ? UNMODIFIABLE_SET : LINKED_HASH_SET;
+      } else if (List.class.isAssignableFrom(theClass)) {
+        return isUnmodifiable ? UNMODIFIABLE_LIST : ARRAY_LIST;
+      } else {
+        return isUnmodifiable ? UNMODIFIABLE_COLLECTION : ARRAY_LIST;
+      }
+    }
+
+    FilterEvents.collectionConstructorLookup(theClass);
+    final Instantiator instantiator = Instantiator.of(theClass);
+    return new CollectionFactory() {
+      @Override
+      @SuppressWarnings("unchecked")
+      public final Collection<Object> newTarget(final Collection<?> original, final int size) throws Throwable {
+        return (Collection<Object>) instantiator.newInstance();
+      }
+    };
+  }
+
+  // unmodifiable and immutable collections and maps of the JDK (non-public classes)
+  private static final boolean isUnmodifiable(final Class<?> theClass) {
+    final String name = theClass.getName();
+
+    return name.startsWith("java.util.Collections$Unmodifiable")
+           || name.startsWith("java.util.Collections$Empty")
+           || name.startsWith("java.util.Collections$Singleton")
+           || name.startsWith("java.util.ImmutableCollections$");
+  }
+
+  // kinds of maps that are not created by the fast paths of newMap
+  private static final Integer CONSTRUCTOR_MAP = Integer.valueOf(0);
+  private static final Integer ORDERED_MAP = Integer.valueOf(1);
+  private static final Integer SORTED_MAP = Integer.valueOf(2);
+  private static final Integer UNMODIFIABLE_MAP = Integer.valueOf(3);
+  private static final Integer UNMODIFIABLE_SORTED_MAP = Integer.valueOf(4);
+  private static final Integer SYNCHRONIZED_MAP = Integer.valueOf(5);
+  private static final Integer SYNCHRONIZED_SORTED_MAP = Integer.valueOf(6);
+  private static final Integer UNSUPPORTED_MAP = Integer.valueOf(7);
+
+  private static final ClassCache<Integer> mapKinds = new ClassCache<Integer>() {
+    @Override
+    protected final Integer computeValue(final Class<?> theClass) {
+      // other maps of the JDK that can not be created by a constructor, e.g., Map.of, Collections.unmodifiableMap,
+      // emptyMap or singletonMap (the copy is an unmodifiable wrapper, not the immutable class)
+      if (theClass.getClassLoader() == null && !Modifier.isPublic(theClass.getModifiers())) {
+        final boolean isSorted = SortedMap.class.isAssignableFrom(theClass);
+        final String name = theClass.getName();
+
+        if (name.startsWith("java.util.Collections$Checked")) {
+          // the key and value types are not accessible
+          return UNSUPPORTED_MAP;
+        } else if (name.startsWith("java.util.Collections$Synchronized")) {
+          return isSorted ? SYNCHRONIZED_SORTED_MAP : SYNCHRONIZED_MAP;
+        } else if (isUnmodifiable(theClass)) {
+          return isSorted ? UNMODIFIABLE_SORTED_MAP : UNMODIFIABLE_MAP;
+        }
+        return isSorted ? SORTED_MAP : ORDERED_MAP;
+      }
+
+      return CONSTRUCTOR_MAP;
+    }
+  };
+
+  // empty, modifiable map of the same class and ordering, large enough to be filled without rehashing
+  // (see wrapMap for maps that can not be created by a constructor)
+  @SuppressWarnings("unchecked")
+  public static final Map<Object, Object> newMap(final Map<?, ?> originalMap) throws Throwable {
+    final Class<?> theClass = originalMap.getClass();
+    final int size = originalMap.size();
+
+    if (theClass == HashMap.class) {
+      return new HashMap<Object, Object>(capacityFor(size));
+    } else if (theClass == LinkedHashMap.class) {
+      return new LinkedHashMap<Object, Object>(capacityFor(size));
+    } else if (theClass == IdentityHashMap.class) {
+      return new IdentityHashMap<Object, Object>(size);
+    } else if (theClass == ConcurrentHashMap.class) {
+      // sized for the number of entries already
+      return new ConcurrentHashMap<Object, Object>(size);
+    } else if (theClass == TreeMap.class) {
+      return new TreeMap<Object, Object>(((TreeMap<Object, ?>) originalMap).comparator());
+    } else if (theClass == ConcurrentSkipListMap.class) {
+      return new ConcurrentSkipListMap<Object, Object>(
+                   ((ConcurrentSkipListMap<Object, ?>) originalMap).comparator());
+    } else if (theClass == EnumMap.class) {
+      // the key type is only available by copying
+      final EnumMap<?, ?> clonedMap = ((EnumMap<?, ?>) originalMap).clone();
+      clonedMap.clear();
+      return (Map<Object, Object>) (Map<?, ?>) clonedMap;
+    }
+
+    final Integer kind = mapKinds.get(theClass);
+    if (kind == CONSTRUCTOR_MAP) {
+      try {
+        return (Map<Object, Object>) Instantiator.of(theClass).newInstance();
+      } catch (final Exception exception) {
+        // no usable no-arg constructor, fall back to a map of the same ordering
+        return SortedMap.class.isAssignableFrom(theClass)
+               ? new TreeMap<Object, Object>(((SortedMap<Object, ?>) originalMap).comparator())
+               : new LinkedHashMap<Object, Object>(capacityFor(size));
+      }
+    } else if (kind == SORTED_MAP || kind == UNMODIFIABLE_SORTED_MAP || kind == SYNCHRONIZED_SORTED_MAP) {
+      return new TreeMap<Object, Object>(((SortedMap<Object, ?>) originalMap).comparator());
+    } else if (kind == UNSUPPORTED_MAP) {
+      throw new UnsupportedOperationException("map can not be copied without changing its semantics, "
+                                              + "register a factory: " + theClass.getName());
+    }
+
+    return new LinkedHashMap<Object, Object>(capacityFor(size));
+  }
+
+  // the object replacing originalMap in the filtered graph: an unmodifiable view of target for unmodifiable and
+  // immutable maps, a synchronized one for synchronized maps, target otherwise (created before the entries are
+  // put, see CollectionFactory.wrap)
+  public static final Object wrapMap(final Map<?, ?> originalMap, final Map<Object, Object> target) {
+    final Class<?> theClass = originalMap.getClass();
+
+    if (theClass.getClassLoader() != null || Modifier.isPublic(theClass.getModifiers())) {
+      // fast path, e.g., HashMap
+      return target;
+    }
+
+    final Integer kind = mapKinds.get(theClass);
+    if (kind == UNMODIFIABLE_MAP) {
+      return Collections.unmodifiableMap(target);
+    } else if (kind == UNMODIFIABLE_SORTED_MAP) {
+      return Collections.unmodifiableNavigableMap((NavigableMap<Object, Object>) target);
+    } else if (kind == SYNCHRONIZED_MAP) {
+      return Collections.synchronizedMap(target);
+    } else if (kind == SYNCHRONIZED_SORTED_MAP) {
+      return Collections.synchronizedNavigableMap((NavigableMap<Object, Object>) target);
+    }
+
+    return target;
+  }
+
+  // initial capacity of a hash map with the default load factor holding size entries
+  public static final int capacityFor(final int size) {
+    return (int) Math.min(size / .75f + 1.f, (float) Integer.MAX_VALUE);
+  }
+
+}
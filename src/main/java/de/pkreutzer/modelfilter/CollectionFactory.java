@@ -0,0 +1,24 @@
+package de.pkreutzer.modelfilter;
+
+import java.util.Collection;
+
+// creates the filtered copies of collections of a class, registered by ModelFilter.Builder.withCollectionFactory
+// (defaults cover the collections of the JDK, including unmodifiable and immutable ones)
+public abstract class CollectionFactory {
+
+  // empty, modifiable collection the filtered elements of original are added to (size elements)
+  public abstract Collection<Object> newTarget(final Collection<?> original, final int size) throws Throwable;
+
+  // the object replacing original in the filtered graph, e.g., an unmodifiable view of target; created before
+  // the elements are added as the collection may be referenced by its own elements
+  public Object wrap(final Collection<Object> target) {
+    return target;
+  }
+
+  // false if elements may be added before their contents have been copied, i.e., the target does not use
+  // hashCode, equals or compareTo of its elements (lists, queues)
+  public boolean requiresCompleteElements() {
+    return true;
+  }
+
+}
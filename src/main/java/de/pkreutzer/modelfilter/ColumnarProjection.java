@@ -0,0 +1,129 @@
+package de.pkreutzer.modelfilter;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import java.lang.reflect.Field;
+
+// filtered objects of one class as columns (see ModelFilter.projectColumns): one array per included field,
+// primitive arrays for primitive fields, Object[] with the filtered values for reference fields, in the
+// order of the objects; excluded fields are not stored at all
+public final class ColumnarProjection {
+
+  private final Class<?> theClass;
+  private final int size;
+  private final List<String> fieldNames;
+  private final Object[] columns;
+
+  ColumnarProjection(final FilterPlan plan, final Object[] objects, final Traversal traversal)
+      throws IllegalAccessException {
+    final Field[] includedFields = plan.getIncludedFields();
+    final List<String> fieldNames = new ArrayList<String>(includedFields.length);
+
+    this.theClass = plan.getTheClass();
+    this.size = objects.length;
+    this.columns = new Object[includedFields.length];
+    for (int index = 0; index < includedFields.length; ++index) {
+      fieldNames.add(includedFields[index].getName());
+      this.columns[index] = columnOf(includedFields[index], objects, traversal);
+    }
+    this.fieldNames = Collections.unmodifiableList(fieldNames);
+
+    // contents of the filtered references
+    traversal.finish();
+  }
+
+  // column by column, so that the type of the field is only checked once
+  private static final Object columnOf(final Field field, final Object[] objects, final Traversal traversal)
+      throws IllegalAccessException {
+    final Class<?> type = field.getType();
+
+    if (!type.isPrimitive()) {
+      final Object[] column = new Object[objects.length];
+      for (int index = 0; index < objects.length; ++index) {
+        column[index] = traversal.filterValue(field.get(objects[index]));
+      }
+      return column;
+    } else if (type.equals(boolean.class)) {
+      final boolean[] column = new boolean[objects.length];
+      for (int index = 0; index < objects.length; ++index) {
+        column[index] = field.getBoolean(objects[index]);
+      }
+      return column;
+    } else if (type.equals(char.class)) {
+      final char[] column = new char[objects.length];
+      for (int index = 0; index < objects.length; ++index) {
+        column[index] = field.getChar(objects[index]);
+      }
+      return column;
+    } else if (type.equals(byte.class)) {
+      final byte[] column = new byte[objects.length];
+      for (int index = 0; index < objects.length; ++index) {
+        column[index] = field.getByte(objects[index]);
+      }
+      return column;
+    } else if (type.equals(short.class)) {
+      final short[] column = new short[objects.length];
+      for (int index = 0; index < objects.length; ++index) {
+        column[index] = field.getShort(objects[index]);
+      }
+      return column;
+    } else if (type.equals(int.class)) {
+      final int[] column = new int[objects.length];
+      for (int index = 0; index < objects.length; ++index) {
+        column[index] = field.getInt(objects[index]);
+      }
+      return column;
+    } else if (type.equals(long.class)) {
+      final long[] column = new long[objects.length];
+      for (int index = 0; index < objects.length; ++index) {
+        column[index] = field.getLong(objects[index]);
+      }
+      return column;
+    } else if (type.equals(float.class)) {
+      final float[] column = new float[objects.length];
+      for (int index = 0; index < objects.length; ++index) {
+        column[index] = field.getFloat(objects[index]);
+      }
+      return column;
+    }
+
+    final double[] column = new double[objects.length];
+    for (int index = 0; index < objects.length; ++index) {
+      column[index] = field.getDouble(objects[index]);
+    }
+    return column;
+  }
+
+  public final Class<?> getTheClass() {
+    return this.theClass;
+  }
+
+  // number of objects, i.e., the length of each column
+  public final int getSize() {
+    return this.size;
+  }
+
+  // names of the included fields, in the order of the columns (fields of superclasses may have equal names)
+  public final List<String> getFieldNames() {
+    return this.fieldNames;
+  }
+
+  // e.g., int[] for an int field, Object[] for a reference field
+  public final Object getColumn(final int index) {
+    return this.columns[index];
+  }
+
+  // column of the first included field with this name
+  public final Object getColumn(final String fieldName) {
+    final int index = this.fieldNames.indexOf(fieldName);
+
+    if (index < 0) {
+      throw new IllegalArgumentException("no included field " + fieldName + " in " + this.theClass.getName());
+    }
+
+    return this.columns[index];
+  }
+
+}
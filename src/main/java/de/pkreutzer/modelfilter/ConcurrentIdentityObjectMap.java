@@ -0,0 +1,45 @@
+package de.pkreutzer.modelfilter;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// identity-keyed map shared by the threads filtering parts of a graph in parallel
+final class ConcurrentIdentityObjectMap implements ObjectMap {
+
+  private final ConcurrentMap<IdentityKey, Object> map;
+
+  public ConcurrentIdentityObjectMap(final int expectedSize) {
+    this.map = new ConcurrentHashMap<IdentityKey, Object>(expectedSize);
+  }
+
+  @Override
+  public final Object get(final Object key) {
+    return this.map.get(new IdentityKey(key));
+  }
+
+  @Override
+  public final Object putIfAbsent(final Object key, final Object value) {
+    return this.map.putIfAbsent(new IdentityKey(key), value);
+  }
+
+  private static final class IdentityKey {
+
+    private final Object object;
+
+    private IdentityKey(final Object object) {
+      this.object = object;
+    }
+
+    @Override
+    public final boolean equals(final Object other) {
+      return other instanceof IdentityKey && ((IdentityKey) other).object == this.object;
+    }
+
+    @Override
+    public final int hashCode() {
+      return System.identityHashCode(this.object);
+    }
+
+  }
+
+}
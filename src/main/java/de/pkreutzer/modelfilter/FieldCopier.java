@@ -0,0 +1,23 @@
+package de.pkreutzer.modelfilter;
+
+// creates instances of a class and copies the fields of a FilterPlan from one instance to another
+abstract class FieldCopier {
+
+  private final int includedFieldCount;
+
+  protected FieldCopier(final int includedFieldCount) {
+    this.includedFieldCount = includedFieldCount;
+  }
+
+  // number of fields copied per object (statistics only)
+  public final int getIncludedFieldCount() {
+    return this.includedFieldCount;
+  }
+
+  public abstract Object newInstance() throws Throwable;
+
+  // filtered values are obtained from the value filter, i.e., the current traversal
+  public abstract void copy(final Traversal traversal, final Object from, final Object to)
+      throws Throwable;
+
+}
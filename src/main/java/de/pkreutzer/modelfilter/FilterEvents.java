@@ -0,0 +1,201 @@
+package de.pkreutzer.modelfilter;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JDK Flight Recorder events (JDK 11 or 8u272 and later). All of them are disabled by default and cost almost
+// nothing until they are enabled in the settings of a recording (e.g., "de.pkreutzer.modelfilter.Filter#enabled").
+// If JFR is missing, nothing happens. The event classes are only loaded when JFR is available, because they
+// are referenced only through their static methods and after checking AVAILABLE.
+final class FilterEvents {
+
+  private static final boolean AVAILABLE = isAvailable();
+
+  private FilterEvents() {
+    // utility class
+  }
+
+  private static final boolean isAvailable() {
+    try {
+      Class.forName("jdk.jfr.Event");
+      return true;
+    } catch (final ClassNotFoundException | LinkageError exception) {
+      return false;
+    }
+  }
+
+  // null if the event is not enabled, otherwise to be passed to endFilter
+  public static final Object beginFilter() {
+    return AVAILABLE ? FilterEvent.beginIfEnabled() : null;
+  }
+
+  public static final void endFilter(final Object event, final Class<?> rootClass, final String viewSetName,
+                                     final int objectsCloned, final int fieldsCopied, final int containersCopied,
+                                     final int sharedReferences) {
+    FilterEvent.end(event, rootClass, viewSetName, objectsCloned, fieldsCopied, containersCopied, sharedReferences);
+  }
+
+  public static final Object beginReflectiveInstantiation() {
+    return AVAILABLE ? ReflectiveInstantiationEvent.beginIfEnabled() : null;
+  }
+
+  public static final void endReflectiveInstantiation(final Object event, final Class<?> theClass,
+                                                      final boolean resolved) {
+    ReflectiveInstantiationEvent.end(event, theClass, resolved);
+  }
+
+  public static final void collectionConstructorLookup(final Class<?> collectionClass) {
+    if (AVAILABLE) {
+      CollectionConstructorLookupEvent.commit(collectionClass);
+    }
+  }
+
+  public static final void cloningFailed(final Object objectToClone, final Throwable cause) {
+    if (AVAILABLE) {
+      CloningFailedEvent.commit(objectToClone, cause);
+    }
+  }
+
+  @Name("de.pkreutzer.modelfilter.Filter")
+  @Label("Filter")
+  @Category("ModelFilter")
+  @Description("Filtering of a root object, i.e., ModelFilter.applyTo or one element of applyToAll")
+  @Enabled(false)
+  @StackTrace(false)
+  static final class FilterEvent extends Event {
+
+    @Label("Root Class")
+    Class<?> rootClass;
+
+    @Label("View Set")
+    String viewSet;
+
+    @Label("Objects Cloned")
+    int objectsCloned;
+
+    @Label("Fields Copied")
+    int fieldsCopied;
+
+    @Label("Containers Copied")
+    int containersCopied;
+
+    @Label("Shared References")
+    int sharedReferences;
+
+    static final Object beginIfEnabled() {
+      final FilterEvent event = new FilterEvent();
+      if (!event.isEnabled()) {
+        return null;
+      }
+
+      event.begin();
+      return event;
+    }
+
+    static final void end(final Object event, final Class<?> rootClass, final String viewSetName,
+                          final int objectsCloned, final int fieldsCopied, final int containersCopied,
+                          final int sharedReferences) {
+      final FilterEvent filterEvent = (FilterEvent) event;
+      filterEvent.end();
+
+      if (filterEvent.shouldCommit()) {
+        filterEvent.rootClass = rootClass;
+        filterEvent.viewSet = viewSetName;
+        filterEvent.objectsCloned = objectsCloned;
+        filterEvent.fieldsCopied = fieldsCopied;
+        filterEvent.containersCopied = containersCopied;
+        filterEvent.sharedReferences = sharedReferences;
+        filterEvent.commit();
+      }
+    }
+
+  }
+
+  @Name("de.pkreutzer.modelfilter.ReflectiveInstantiation")
+  @Label("Reflective Instantiation")
+  @Category("ModelFilter")
+  @Description("Resolution of the no-arg constructor of a class by reflection (once per class)")
+  @Enabled(false)
+  static final class ReflectiveInstantiationEvent extends Event {
+
+    @Label("Class")
+    Class<?> theClass;
+
+    @Label("Resolved")
+    boolean resolved;
+
+    static final Object beginIfEnabled() {
+      final ReflectiveInstantiationEvent event = new ReflectiveInstantiationEvent();
+      if (!event.isEnabled()) {
+        return null;
+      }
+
+      event.begin();
+      return event;
+    }
+
+    static final void end(final Object event, final Class<?> theClass, final boolean resolved) {
+      final ReflectiveInstantiationEvent instantiationEvent = (ReflectiveInstantiationEvent) event;
+      instantiationEvent.end();
+
+      if (instantiationEvent.shouldCommit()) {
+        instantiationEvent.theClass = theClass;
+        instantiationEvent.resolved = resolved;
+        instantiationEvent.commit();
+      }
+    }
+
+  }
+
+  @Name("de.pkreutzer.modelfilter.CollectionConstructorLookup")
+  @Label("Collection Constructor Lookup")
+  @Category("ModelFilter")
+  @Description("Collection class without a built-in or registered factory, copies are created by its constructor")
+  @Enabled(false)
+  static final class CollectionConstructorLookupEvent extends Event {
+
+    @Label("Collection Class")
+    Class<?> collectionClass;
+
+    static final void commit(final Class<?> collectionClass) {
+      final CollectionConstructorLookupEvent event = new CollectionConstructorLookupEvent();
+
+      if (event.shouldCommit()) {
+        event.collectionClass = collectionClass;
+        event.commit();
+      }
+    }
+
+  }
+
+  @Name("de.pkreutzer.modelfilter.CloningFailed")
+  @Label("Cloning Failed")
+  @Category("ModelFilter")
+  @Description("CloningFailedException, i.e., an object could not be filtered")
+  @Enabled(false)
+  static final class CloningFailedEvent extends Event {
+
+    @Label("Object Class")
+    Class<?> objectClass;
+
+    @Label("Cause")
+    String cause;
+
+    static final void commit(final Object objectToClone, final Throwable cause) {
+      final CloningFailedEvent event = new CloningFailedEvent();
+
+      if (event.shouldCommit()) {
+        event.objectClass = objectToClone != null ? objectToClone.getClass() : null;
+        event.cause = String.valueOf(cause);
+        event.commit();
+      }
+    }
+
+  }
+
+}
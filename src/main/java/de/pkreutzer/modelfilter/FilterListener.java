@@ -0,0 +1,9 @@
+package de.pkreutzer.modelfilter;
+
+// notified once per filtered root object (see ModelFilter.Builder.withListener), called by the filtering thread,
+// so implementations have to be thread-safe and cheap (e.g., FilterMetrics)
+public interface FilterListener {
+
+  public void filtered(final FilterStatistics statistics);
+
+}
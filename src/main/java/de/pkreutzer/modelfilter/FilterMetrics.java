@@ -0,0 +1,160 @@
+package de.pkreutzer.modelfilter;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// listener aggregating the statistics per view set and root class in striped counters (LongAdder), i.e., it can
+// be shared by filters used by many threads; classes are kept by name so that class loaders are not pinned
+public final class FilterMetrics implements FilterListener {
+
+  private static final String NULL_ROOT = "null";
+
+  private final ConcurrentMap<String, ConcurrentMap<String, Counters>> counters;
+
+  public FilterMetrics() {
+    this.counters = new ConcurrentHashMap<String, ConcurrentMap<String, Counters>>();
+  }
+
+  @Override
+  public final void filtered(final FilterStatistics statistics) {
+    final Class<?> rootClass = statistics.getRootClass();
+    final Counters counters = countersFor(statistics.getViewSetName(),
+                                          rootClass != null ? rootClass.getName() : NULL_ROOT);
+
+    counters.invocations.increment();
+    counters.objectsCloned.add(statistics.getObjectsCloned());
+    counters.fieldsCopied.add(statistics.getFieldsCopied());
+    counters.containersCopied.add(statistics.getContainersCopied());
+    counters.sharedReferences.add(statistics.getSharedReferences());
+    counters.nanos.add(statistics.getNanos());
+  }
+
+  private final Counters countersFor(final String viewSetName, final String className) {
+    ConcurrentMap<String, Counters> countersOfViewSet = this.counters.get(viewSetName);
+    if (countersOfViewSet == null) {
+      countersOfViewSet = new ConcurrentHashMap<String, Counters>();
+
+      final ConcurrentMap<String, Counters> existingCounters =
+              this.counters.putIfAbsent(viewSetName, countersOfViewSet);
+      if (existingCounters != null) {
+        countersOfViewSet = existingCounters;
+      }
+    }
+
+    Counters counters = countersOfViewSet.get(className);
+    if (counters == null) {
+      counters = new Counters();
+
+      final Counters existingCounters = countersOfViewSet.putIfAbsent(className, counters);
+      if (existingCounters != null) {
+        counters = existingCounters;
+      }
+    }
+
+    return counters;
+  }
+
+  // current values of all counters (not an atomic snapshot while filters are running)
+  public final List<Counts> getCounts() {
+    final List<Counts> counts = new ArrayList<Counts>();
+
+    for (final Map.Entry<String, ConcurrentMap<String, Counters>> viewSet : this.counters.entrySet()) {
+      for (final Map.Entry<String, Counters> rootClass : viewSet.getValue().entrySet()) {
+        final Counters counters = rootClass.getValue();
+        counts.add(new Counts(viewSet.getKey(), rootClass.getKey(),
+                              counters.invocations.sum(), counters.objectsCloned.sum(),
+                              counters.fieldsCopied.sum(), counters.containersCopied.sum(),
+                              counters.sharedReferences.sum(), counters.nanos.sum()));
+      }
+    }
+
+    return counts;
+  }
+
+  public final void reset() {
+    this.counters.clear();
+  }
+
+  private static final class Counters {
+
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder objectsCloned = new LongAdder();
+    private final LongAdder fieldsCopied = new LongAdder();
+    private final LongAdder containersCopied = new LongAdder();
+    private final LongAdder sharedReferences = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+  }
+
+  // totals of a view set and root class, see FilterStatistics
+  public static final class Counts {
+
+    private final String viewSetName;
+    private final String rootClassName;
+    private final long invocations;
+    private final long objectsCloned;
+    private final long fieldsCopied;
+    private final long containersCopied;
+    private final long sharedReferences;
+    private final long nanos;
+
+    private Counts(final String viewSetName, final String rootClassName, final long invocations,
+                   final long objectsCloned, final long fieldsCopied, final long containersCopied,
+                   final long sharedReferences, final long nanos) {
+      this.viewSetName = viewSetName;
+      this.rootClassName = rootClassName;
+      this.invocations = invocations;
+      this.objectsCloned = objectsCloned;
+      this.fieldsCopied = fieldsCopied;
+      this.containersCopied = containersCopied;
+      this.sharedReferences = sharedReferences;
+      this.nanos = nanos;
+    }
+
+    public final String getViewSetName() {
+      return this.viewSetName;
+    }
+
+    public final String getRootClassName() {
+      return this.rootClassName;
+    }
+
+    public final long getInvocations() {
+      return this.invocations;
+    }
+
+    public final long getObjectsCloned() {
+      return this.objectsCloned;
+    }
+
+    public final long getFieldsCopied() {
+      return this.fieldsCopied;
+    }
+
+    public final long getContainersCopied() {
+      return this.containersCopied;
+    }
+
+    public final long getSharedReferences() {
+      return this.sharedReferences;
+    }
+
+    public final long getNanos() {
+      return this.nanos;
+    }
+
+    @Override
+    public final String toString() {
+      return this.rootClassName + " [" + this.viewSetName + "]: " + this.invocations + " invocations, "
+             + this.objectsCloned + " objects, " + this.fieldsCopied + " fields, "
+             + this.containersCopied + " containers, " + this.sharedReferences + " shared references, "
+             + this.nanos + " ns";
+    }
+
+  }
+
+}
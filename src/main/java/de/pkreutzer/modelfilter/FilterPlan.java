@@ -0,0 +1,268 @@
+package de.pkreutzer.modelfilter;
+
+import java.util.Set;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+// flattened list of included and excluded fields of a class for a given set of views
+final class FilterPlan {
+
+  // plans of a class by view set, see ClassCache
+  private static final ClassCache<ConcurrentMap<ViewSet, FilterPlan>> plans =
+      new ClassCache<ConcurrentMap<ViewSet, FilterPlan>>() {
+        @Override
+        protected final ConcurrentMap<ViewSet, FilterPlan> computeValue(final Class<?> theClass) {
+          return new ConcurrentHashMap<ViewSet, FilterPlan>();
+        }
+      };
+
+  private final Class<?> theClass;
+  private final Field[] includedFields;
+  // names of the included fields, qualified for fields hidden by a field of a subclass (see namesOf)
+  private final String[] includedFieldNames;
+  private final Field[] excludedFields;
+  private final Object[] excludedDefaults;
+
+  // interface methods of read-only proxies mapped to the fields they return
+  private final ConcurrentMap<Method, Getter> getters;
+
+  // by access strategy and shared fields
+  private final ConcurrentMap<List<Object>, FieldCopier> copiers;
+
+  private FilterPlan(final Class<?> theClass, final List<Field> includedFields, final List<Field> excludedFields) {
+    this.theClass = theClass;
+    this.includedFields = includedFields.toArray(new Field[includedFields.size()]);
+    this.includedFieldNames = namesOf(this.includedFields);
+    this.excludedFields = excludedFields.toArray(new Field[excludedFields.size()]);
+
+    this.excludedDefaults = new Object[this.excludedFields.length];
+    for (int index = 0; index < this.excludedFields.length; ++index) {
+      this.excludedDefaults[index] = defaultValue(this.excludedFields[index].getType());
+    }
+
+    this.getters = new ConcurrentHashMap<Method, Getter>();
+
+    this.copiers = new ConcurrentHashMap<List<Object>, FieldCopier>();
+  }
+
+  public final Class<?> getTheClass() {
+    return this.theClass;
+  }
+
+  public final Field[] getIncludedFields() {
+    return this.includedFields;
+  }
+
+  public final String[] getIncludedFieldNames() {
+    return this.includedFieldNames;
+  }
+
+  public final Field[] getExcludedFields() {
+    return this.excludedFields;
+  }
+
+  public final Object[] getExcludedDefaults() {
+    return this.excludedDefaults;
+  }
+
+  // getX(), isX() and x() return field x, returns null for other methods
+  public final Getter getGetter(final Method method) {
+    Getter getter = this.getters.get(method);
+
+    if (getter == null) {
+      getter = findGetter(method);
+      this.getters.putIfAbsent(method, getter);
+    }
+
+    return getter == Getter.NONE ? null : getter;
+  }
+
+  private final Getter findGetter(final Method method) {
+    if (method.getParameterTypes().length > 0 || method.getReturnType().equals(void.class)) {
+      return Getter.NONE;
+    }
+
+    final String methodName = method.getName();
+    final String fieldName;
+    if (methodName.startsWith("get") && methodName.length() > 3) {
+      fieldName = Character.toLowerCase(methodName.charAt(3)) + methodName.substring(4);
+    } else if (methodName.startsWith("is") && methodName.length() > 2) {
+      fieldName = Character.toLowerCase(methodName.charAt(2)) + methodName.substring(3);
+    } else {
+      fieldName = methodName;
+    }
+
+    for (final Field field : this.includedFields) {
+      if (field.getName().equals(fieldName)) {
+        return new Getter(field, true);
+      }
+    }
+    for (final Field field : this.excludedFields) {
+      if (field.getName().equals(fieldName)) {
+        return new Getter(field, false);
+      }
+    }
+
+    return Getter.NONE;
+  }
+
+  // sharedFields: indices of included fields whose values can not reach filtered classes (see
+  // ModelFilter.mayReachFilteredClass), their arrays, collections and maps are copied shallowly
+  public final FieldCopier getCopier(final AccessStrategy accessStrategy, final BitSet sharedFields)
+      throws IllegalAccessException {
+    final List<Object> key = Arrays.<Object>asList(accessStrategy, sharedFields);
+
+    FieldCopier copier = this.copiers.get(key);
+    if (copier == null) {
+      copier = createCopier(accessStrategy, sharedFields);
+
+      final FieldCopier existingCopier = this.copiers.putIfAbsent(key, copier);
+      if (existingCopier != null) {
+        copier = existingCopier;
+      }
+    }
+
+    return copier;
+  }
+
+  private final FieldCopier createCopier(final AccessStrategy accessStrategy, final BitSet sharedFields)
+      throws IllegalAccessException {
+    switch (accessStrategy) {
+      case GENERATED: {
+        final GeneratedFilter<?> generatedFilter = GeneratedFilters.lookup(this.theClass);
+        final FieldCopier copier = generatedFilter != null
+                                   ? GeneratedFieldCopier.create(this, sharedFields, generatedFilter)
+                                   : null;
+
+        return copier != null ? copier : getCopier(AccessStrategy.REFLECTION, sharedFields);
+      }
+      case METHOD_HANDLES:
+        return new MethodHandleFieldCopier(this, sharedFields);
+      default:
+        return new ReflectiveFieldCopier(this, sharedFields);
+    }
+  }
+
+  public static final FilterPlan of(final Class<?> theClass, final ViewSet views) {
+    final ConcurrentMap<ViewSet, FilterPlan> plansOfClass = plans.get(theClass);
+
+    FilterPlan plan = plansOfClass.get(views);
+    if (plan == null) {
+      plan = compile(theClass, views);
+
+      final FilterPlan existingPlan = plansOfClass.putIfAbsent(views, plan);
+      if (existingPlan != null) {
+        plan = existingPlan;
+      }
+    }
+
+    return plan;
+  }
+
+  public static final Set<Class<? extends View>> normalizeViews(final Set<Class<? extends View>> views) {
+    return Collections.unmodifiableSet(new HashSet<Class<? extends View>>(views));
+  }
+
+  private static final FilterPlan compile(final Class<?> theClass, final ViewSet views) {
+    final List<Field> includedFields = new ArrayList<Field>();
+    final List<Field> excludedFields = new ArrayList<Field>();
+
+    for (Class<?> objectClass = theClass;
+         !objectClass.equals(Object.class);
+         objectClass = objectClass.getSuperclass()) {
+      for (final Field field : objectClass.getDeclaredFields()) {
+        // static fields do not belong to the object
+        if (Modifier.isStatic(field.getModifiers())) {
+          continue;
+        }
+
+        field.setAccessible(true);
+
+        if (views.includes(field)) {
+          includedFields.add(field);
+        } else {
+          excludedFields.add(field);
+        }
+      }
+    }
+
+    return new FilterPlan(theClass, includedFields, excludedFields);
+  }
+
+  // unique names of fields ordered from subclass to superclass: hidden fields are qualified by the simple name of
+  // their declaring class ("Base.id"), or by its name if that is not unique either
+  public static final String[] namesOf(final Field[] fields) {
+    final String[] names = new String[fields.length];
+    final Set<String> usedNames = new HashSet<String>();
+
+    for (int index = 0; index < fields.length; ++index) {
+      final Field field = fields[index];
+      String name = field.getName();
+      if (!usedNames.add(name)) {
+        name = field.getDeclaringClass().getSimpleName() + '.' + field.getName();
+        if (!usedNames.add(name)) {
+          name = field.getDeclaringClass().getName() + '.' + field.getName();
+          usedNames.add(name);
+        }
+      }
+      names[index] = name;
+    }
+
+    return names;
+  }
+
+  public static final Object defaultValue(final Class<?> type) {
+    if (!type.isPrimitive()) {
+      return null;
+    } else if (type.equals(boolean.class)) {
+      return Boolean.FALSE;
+    } else if (type.equals(char.class)) {
+      return Character.valueOf((char)(0));
+    } else if (type.equals(byte.class)) {
+      return Byte.valueOf((byte)(0));
+    } else if (type.equals(short.class)) {
+      return Short.valueOf((short)(0));
+    } else if (type.equals(int.class)) {
+      return Integer.valueOf(0);
+    } else if (type.equals(long.class)) {
+      return Long.valueOf(0L);
+    } else if (type.equals(float.class)) {
+      return Float.valueOf(0.f);
+    } else {
+      return Double.valueOf(0.);
+    }
+  }
+
+  public static final class Getter {
+
+    private static final Getter NONE = new Getter(null, false);
+
+    private final Field field;
+    private final boolean isIncluded;
+
+    private Getter(final Field field, final boolean isIncluded) {
+      this.field = field;
+      this.isIncluded = isIncluded;
+    }
+
+    public final Field getField() {
+      return this.field;
+    }
+
+    public final boolean isIncluded() {
+      return this.isIncluded;
+    }
+
+  }
+
+}
@@ -0,0 +1,68 @@
+package de.pkreutzer.modelfilter;
+
+import java.util.Set;
+
+// what it took to filter one root object (batches filtered in parallel are reported as one Object[])
+public final class FilterStatistics {
+
+  private final Class<?> rootClass;
+  private final Set<Class<? extends View>> views;
+  private final String viewSetName;
+  private final int objectsCloned;
+  private final int fieldsCopied;
+  private final int containersCopied;
+  private final int sharedReferences;
+  private final long nanos;
+
+  FilterStatistics(final Class<?> rootClass, final Set<Class<? extends View>> views, final String viewSetName,
+                   final int objectsCloned, final int fieldsCopied, final int containersCopied,
+                   final int sharedReferences, final long nanos) {
+    this.rootClass = rootClass;
+    this.views = views;
+    this.viewSetName = viewSetName;
+    this.objectsCloned = objectsCloned;
+    this.fieldsCopied = fieldsCopied;
+    this.containersCopied = containersCopied;
+    this.sharedReferences = sharedReferences;
+    this.nanos = nanos;
+  }
+
+  // null if the root object was null
+  public final Class<?> getRootClass() {
+    return this.rootClass;
+  }
+
+  public final Set<Class<? extends View>> getViews() {
+    return this.views;
+  }
+
+  // sorted names of the views, e.g., to be used as key
+  public final String getViewSetName() {
+    return this.viewSetName;
+  }
+
+  // objects of filtered classes, 0 if the root object was already filtered correctly
+  public final int getObjectsCloned() {
+    return this.objectsCloned;
+  }
+
+  // included fields of the cloned objects
+  public final int getFieldsCopied() {
+    return this.fieldsCopied;
+  }
+
+  // arrays, collections and maps
+  public final int getContainersCopied() {
+    return this.containersCopied;
+  }
+
+  // references to objects that had been filtered already (shared objects and cycles)
+  public final int getSharedReferences() {
+    return this.sharedReferences;
+  }
+
+  public final long getNanos() {
+    return this.nanos;
+  }
+
+}
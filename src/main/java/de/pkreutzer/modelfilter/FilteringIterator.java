@@ -0,0 +1,42 @@
+package de.pkreutzer.modelfilter;
+
+import java.util.Iterator;
+
+// filters the elements of an iterator as they are consumed, elements within the same window of
+// consecutive elements share their clones, after that the objects filtered so far are forgotten
+final class FilteringIterator<T> implements Iterator<T> {
+
+  private final ModelFilter modelFilter;
+  private final Iterator<T> iterator;
+  private final int identityWindow;
+
+  private Traversal traversal;
+  private int elementsInWindow;
+
+  public FilteringIterator(final ModelFilter modelFilter, final Iterator<T> iterator, final int identityWindow) {
+    this.modelFilter = modelFilter;
+    this.iterator = iterator;
+    this.identityWindow = identityWindow;
+    this.traversal = null;
+    this.elementsInWindow = 0;
+  }
+
+  @Override
+  public final boolean hasNext() {
+    return this.iterator.hasNext();
+  }
+
+  @Override
+  public final T next() {
+    final T element = this.iterator.next();
+
+    if (this.traversal == null || this.elementsInWindow == this.identityWindow) {
+      this.traversal = this.modelFilter.newTraversal(true);
+      this.elementsInWindow = 0;
+    }
+    ++this.elementsInWindow;
+
+    return this.traversal.filter(element);
+  }
+
+}
@@ -0,0 +1,73 @@
+package de.pkreutzer.modelfilter;
+
+import java.util.Map;
+import java.util.HashMap;
+import java.util.BitSet;
+
+import java.lang.reflect.Field;
+
+final class GeneratedFieldCopier extends FieldCopier {
+
+  private final GeneratedFilter<Object> generatedFilter;
+  private final boolean[] included;
+  private final boolean[] shared;
+
+  private GeneratedFieldCopier(final GeneratedFilter<Object> generatedFilter,
+                               final boolean[] included, final boolean[] shared, final int includedFieldCount) {
+    super(includedFieldCount);
+    this.generatedFilter = generatedFilter;
+    this.included = included;
+    this.shared = shared;
+  }
+
+  // returns null if the generated filter does not match the fields of the plan (e.g., stale generated code);
+  // sharedFields are indices of included fields of the plan, see FilterPlan.getCopier
+  @SuppressWarnings("unchecked")
+  public static final GeneratedFieldCopier create(final FilterPlan plan, final BitSet sharedFields,
+                                                  final GeneratedFilter<?> generatedFilter) {
+    final String[] generatedFields = generatedFilter.getFields();
+
+    // index of included fields, -1 for excluded fields
+    final Map<String, Integer> planFields = new HashMap<String, Integer>();
+    final Field[] includedFields = plan.getIncludedFields();
+    for (int index = 0; index < includedFields.length; ++index) {
+      planFields.put(fieldKey(includedFields[index]), Integer.valueOf(index));
+    }
+    for (final Field field : plan.getExcludedFields()) {
+      planFields.put(fieldKey(field), Integer.valueOf(-1));
+    }
+
+    if (planFields.size() != generatedFields.length) {
+      return null;
+    }
+
+    final boolean[] included = new boolean[generatedFields.length];
+    final boolean[] shared = new boolean[generatedFields.length];
+    for (int index = 0; index < generatedFields.length; ++index) {
+      final Integer planIndex = planFields.get(generatedFields[index]);
+      if (planIndex == null) {
+        return null;
+      }
+      included[index] = planIndex.intValue() >= 0;
+      shared[index] = included[index] && sharedFields.get(planIndex.intValue());
+    }
+
+    return new GeneratedFieldCopier((GeneratedFilter<Object>) generatedFilter, included, shared,
+                                    includedFields.length);
+  }
+
+  private static final String fieldKey(final Field field) {
+    return field.getDeclaringClass().getName() + "#" + field.getName();
+  }
+
+  @Override
+  public final Object newInstance() {
+    return this.generatedFilter.newInstance();
+  }
+
+  @Override
+  public final void copy(final Traversal traversal, final Object from, final Object to) {
+    this.generatedFilter.copy(traversal, from, to, this.included, this.shared);
+  }
+
+}
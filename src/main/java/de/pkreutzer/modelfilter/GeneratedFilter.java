@@ -0,0 +1,25 @@
+package de.pkreutzer.modelfilter;
+
+// implemented by the classes generated by de.pkreutzer.modelfilter.processor.ModelFilterProcessor
+public interface GeneratedFilter<T> {
+
+  // all instance fields of T (including superclasses) as "<binary name of declaring class>#<field name>"
+  public String[] getFields();
+
+  public T newInstance();
+
+  // included[i] tells whether the i-th field of getFields() matches the views, shared[i] whether its value can not
+  // reach filtered classes (passed to ValueFilter.copyShallow instead of ValueFilter.filterValue)
+  public void copy(final ValueFilter valueFilter, final T from, final T to,
+                   final boolean[] included, final boolean[] shared);
+
+  public static interface ValueFilter {
+
+    public <V> V filterValue(final V value);
+
+    // arrays, collections and maps are copied without filtering their elements, other values are returned as is
+    public <V> V copyShallow(final V value);
+
+  }
+
+}
@@ -0,0 +1,53 @@
+package de.pkreutzer.modelfilter;
+
+// looks up the filter generated for a class at compile time, see GeneratedFilter
+final class GeneratedFilters {
+
+  public static final String SUFFIX = "ModelFilter";
+
+  private static final ClassValue<GeneratedFilter<?>> generatedFilters = new ClassValue<GeneratedFilter<?>>() {
+    @Override
+    protected final GeneratedFilter<?> computeValue(final Class<?> theClass) {
+      return load(theClass);
+    }
+  };
+
+  private GeneratedFilters() {
+    // intentionally left blank
+  }
+
+  // returns null if there is no generated filter for the class
+  public static final GeneratedFilter<?> lookup(final Class<?> theClass) {
+    return generatedFilters.get(theClass);
+  }
+
+  // de.example.Outer$Inner -> de.example.Outer_InnerModelFilter
+  public static final String generatedClassName(final String binaryClassName) {
+    final int packageEnd = binaryClassName.lastIndexOf('.');
+    final String packagePrefix = binaryClassName.substring(0, packageEnd + 1);
+    final String simpleName = binaryClassName.substring(packageEnd + 1).replace('$', '_');
+
+    return packagePrefix + simpleName + SUFFIX;
+  }
+
+  private static final GeneratedFilter<?> load(final Class<?> theClass) {
+    if (theClass.isArray() || theClass.isPrimitive() || theClass.getClassLoader() == null) {
+      return null;
+    }
+
+    try {
+      final Class<?> generatedClass =
+              Class.forName(generatedClassName(theClass.getName()), true, theClass.getClassLoader());
+
+      if (!GeneratedFilter.class.isAssignableFrom(generatedClass)) {
+        return null;
+      }
+
+      return (GeneratedFilter<?>) generatedClass.getConstructor().newInstance();
+    } catch (final ReflectiveOperationException | LinkageError exception) {
+      // no (usable) generated filter -> fall back to reflection
+      return null;
+    }
+  }
+
+}
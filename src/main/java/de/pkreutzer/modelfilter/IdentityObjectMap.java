@@ -0,0 +1,118 @@
+package de.pkreutzer.modelfilter;
+
+import java.util.Arrays;
+
+// minimal identity-keyed map with open addressing (linear probing), keys and values are never null
+final class IdentityObjectMap implements ObjectMap {
+
+  private static final int MINIMUM_CAPACITY = 8;
+
+  // keys at even, values at odd indices
+  private Object[] table;
+  private int size;
+  private int threshold;
+
+  public IdentityObjectMap(final int expectedSize) {
+    allocate(capacityFor(expectedSize));
+  }
+
+  @Override
+  public final Object get(final Object key) {
+    final Object[] table = this.table;
+    final int mask = table.length - 1;
+
+    for (int index = indexFor(key, mask); ; index = (index + 2) & mask) {
+      final Object currentKey = table[index];
+      if (currentKey == key) {
+        return table[index + 1];
+      }
+      if (currentKey == null) {
+        return null;
+      }
+    }
+  }
+
+  @Override
+  public final Object putIfAbsent(final Object key, final Object value) {
+    final Object[] table = this.table;
+    final int mask = table.length - 1;
+
+    int index = indexFor(key, mask);
+    for (Object currentKey = table[index]; currentKey != null; currentKey = table[index]) {
+      if (currentKey == key) {
+        return table[index + 1];
+      }
+      index = (index + 2) & mask;
+    }
+
+    table[index] = key;
+    table[index + 1] = value;
+
+    if (++this.size >= this.threshold) {
+      // double the number of slots
+      resize(table.length);
+    }
+
+    return null;
+  }
+
+  public final int size() {
+    return this.size;
+  }
+
+  // puts every key mapped to itself into map (unless map already contains it)
+  public final void putKeysInto(final ObjectMap map) {
+    final Object[] table = this.table;
+
+    for (int index = 0; index < table.length; index += 2) {
+      if (table[index] != null) {
+        map.putIfAbsent(table[index], table[index]);
+      }
+    }
+  }
+
+  public final void clear() {
+    Arrays.fill(this.table, null);
+    this.size = 0;
+  }
+
+  private final void resize(final int capacity) {
+    final Object[] oldTable = this.table;
+    allocate(capacity);
+
+    final Object[] table = this.table;
+    final int mask = table.length - 1;
+    for (int oldIndex = 0; oldIndex < oldTable.length; oldIndex += 2) {
+      final Object key = oldTable[oldIndex];
+      if (key != null) {
+        int index = indexFor(key, mask);
+        while (table[index] != null) {
+          index = (index + 2) & mask;
+        }
+        table[index] = key;
+        table[index + 1] = oldTable[oldIndex + 1];
+      }
+    }
+  }
+
+  private final void allocate(final int capacity) {
+    this.table = new Object[2 * capacity];
+    this.threshold = capacity / 2;
+  }
+
+  // number of slots (power of two) such that the table is at most half full
+  private static final int capacityFor(final int expectedSize) {
+    int capacity = MINIMUM_CAPACITY;
+    while (capacity < 2 * expectedSize && capacity < (1 << 29)) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  private static final int indexFor(final Object key, final int mask) {
+    final int hash = System.identityHashCode(key);
+    // spread the bits (like java.util.IdentityHashMap), result is even
+    return ((hash << 1) - (hash << 8)) & mask;
+  }
+
+}
@@ -0,0 +1,96 @@
+package de.pkreutzer.modelfilter;
+
+import java.util.function.Supplier;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import java.lang.reflect.Constructor;
+
+// creates empty instances of a class, either by its no-arg constructor (resolved once per class) or by a factory
+abstract class Instantiator {
+
+  private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+  // see ClassCache, instantiators of classes of the JDK must not be stored with the classes themselves
+  private static final ClassCache<Instantiator> constructors = new ClassCache<Instantiator>() {
+    @Override
+    protected final Instantiator computeValue(final Class<?> theClass) {
+      final Object event = FilterEvents.beginReflectiveInstantiation();
+      final ConstructorInstantiator instantiator = new ConstructorInstantiator(theClass);
+      if (event != null) {
+        FilterEvents.endReflectiveInstantiation(event, theClass, instantiator.constructor != null);
+      }
+
+      return instantiator;
+    }
+  };
+
+  public abstract Object newInstance() throws Throwable;
+
+  // the no-arg constructor does not have to be public
+  public static final Instantiator of(final Class<?> theClass) {
+    return constructors.get(theClass);
+  }
+
+  public static final Instantiator of(final Supplier<?> factory) {
+    return new FactoryInstantiator(factory);
+  }
+
+  private static final class ConstructorInstantiator extends Instantiator {
+
+    private final MethodHandle constructor;
+    // reported on use, classes without no-arg constructor can still be filtered if a factory is registered
+    private final Exception failure;
+
+    private ConstructorInstantiator(final Class<?> theClass) {
+      MethodHandle constructor = null;
+      Exception failure = null;
+
+      try {
+        final Constructor<?> declaredConstructor = theClass.getDeclaredConstructor();
+        declaredConstructor.setAccessible(true);
+        constructor = MethodHandles.lookup().unreflectConstructor(declaredConstructor).asType(CONSTRUCTOR_TYPE);
+      } catch (final Exception exception) {
+        // no no-arg constructor, abstract class, or not accessible (e.g., JDK internals)
+        failure = exception;
+      }
+
+      this.constructor = constructor;
+      this.failure = failure;
+    }
+
+    @Override
+    public final Object newInstance() throws Throwable {
+      if (this.constructor == null) {
+        throw this.failure;
+      }
+
+      return (Object) this.constructor.invokeExact();
+    }
+
+  }
+
+  private static final class FactoryInstantiator extends Instantiator {
+
+    private final Supplier<?> factory;
+
+    private FactoryInstantiator(final Supplier<?> factory) {
+      this.factory = factory;
+    }
+
+    @Override
+    public final Object newInstance() {
+      final Object instance = this.factory.get();
+
+      if (instance == null) {
+        throw new IllegalStateException("factory returned null: " + this.factory);
+      }
+
+      return instance;
+    }
+
+  }
+
+}
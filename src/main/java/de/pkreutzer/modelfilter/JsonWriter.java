@@ -0,0 +1,342 @@
+package de.pkreutzer.modelfilter;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalAmount;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+// writes the filtered object graph as JSON without creating clones: objects of filtered classes are written
+// with the fields of their plan only, other objects with all their instance fields, value types of the JDK as
+// strings; other classes of the JDK are rejected, as their string representation may contain filtered objects
+final class JsonWriter {
+
+  private static final ClassValue<Field[]> instanceFields = new ClassValue<Field[]>() {
+    @Override
+    protected final Field[] computeValue(final Class<?> theClass) {
+      final List<Field> fields = new ArrayList<Field>();
+
+      for (Class<?> objectClass = theClass;
+           !objectClass.equals(Object.class);
+           objectClass = objectClass.getSuperclass()) {
+        for (final Field field : objectClass.getDeclaredFields()) {
+          final int modifiers = field.getModifiers();
+          if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+            field.setAccessible(true);
+            fields.add(field);
+          }
+        }
+      }
+
+      return fields.toArray(new Field[fields.size()]);
+    }
+  };
+
+  private static final ClassValue<String[]> instanceFieldNames = new ClassValue<String[]>() {
+    @Override
+    protected final String[] computeValue(final Class<?> theClass) {
+      return FilterPlan.namesOf(instanceFields.get(theClass));
+    }
+  };
+
+  // kinds of frames
+  private static final int OBJECT = 0;
+  private static final int ARRAY = 1;
+  private static final int COLLECTION = 2;
+  private static final int MAP = 3;
+
+  private final ModelFilter modelFilter;
+  private final Writer writer;
+
+  // objects on the current path, JSON is not able to express cycles
+  private final Set<Object> path;
+  private Frame top;
+
+  public JsonWriter(final ModelFilter modelFilter, final Writer writer) {
+    this.modelFilter = modelFilter;
+    this.writer = writer;
+    this.path = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+    this.top = null;
+  }
+
+  public final void write(final Object value) throws IOException, IllegalAccessException {
+    writeValue(value);
+
+    while (this.top != null) {
+      final Frame frame = this.top;
+
+      if (!frame.hasNext()) {
+        this.writer.write(frame.kind == OBJECT || frame.kind == MAP ? '}' : ']');
+        this.path.remove(frame.object);
+        this.top = frame.parent;
+        continue;
+      }
+
+      if (frame.count++ > 0) {
+        this.writer.write(',');
+      }
+
+      switch (frame.kind) {
+        case OBJECT: {
+          final int index = frame.index++;
+          writeString(frame.names[index]);
+          this.writer.write(':');
+          writeValue(frame.fields[index].get(frame.object));
+          break;
+        }
+        case ARRAY:
+          writeValue(((Object[]) frame.object)[frame.index++]);
+          break;
+        case COLLECTION:
+          writeValue(frame.iterator.next());
+          break;
+        default: {
+          final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) frame.iterator.next();
+          writeKey(entry.getKey());
+          this.writer.write(':');
+          writeValue(entry.getValue());
+          break;
+        }
+      }
+    }
+  }
+
+  // writes scalar values, containers and objects are opened and their contents are written by write
+  private final void writeValue(final Object value) throws IOException {
+    if (value == null) {
+      this.writer.write("null");
+      return;
+    }
+
+    final Class<?> theClass = value.getClass();
+
+    // before the value types, a filtered class may extend Number
+    if (this.modelFilter.classShouldBeFiltered(theClass)) {
+      final FilterPlan plan = this.modelFilter.planFor(theClass);
+      open(value, OBJECT, plan.getIncludedFields(), plan.getIncludedFieldNames(), null);
+    } else if (value instanceof String || value instanceof Character) {
+      writeString(value.toString());
+    } else if (value instanceof Boolean) {
+      this.writer.write(value.toString());
+    } else if (value instanceof Double || value instanceof Float) {
+      final double number = ((Number) value).doubleValue();
+      this.writer.write(Double.isNaN(number) || Double.isInfinite(number) ? "null" : value.toString());
+    } else if (value instanceof Number) {
+      this.writer.write(value.toString());
+    } else if (value instanceof Enum) {
+      writeString(((Enum<?>) value).name());
+    } else if (theClass.isArray()) {
+      if (theClass.getComponentType().isPrimitive()) {
+        writePrimitiveArray(value);
+      } else {
+        open(value, ARRAY, null, null, null);
+      }
+    } else if (value instanceof Collection) {
+      open(value, COLLECTION, null, null, ((Collection<?>) value).iterator());
+    } else if (value instanceof Map) {
+      open(value, MAP, null, null, ((Map<?, ?>) value).entrySet().iterator());
+    } else if (value instanceof Optional) {
+      writeValue(((Optional<?>) value).orElse(null));
+    } else if (value instanceof AtomicReference) {
+      writeValue(((AtomicReference<?>) value).get());
+    } else if (theClass.getClassLoader() == null) {
+      writeJdkValue(value);
+    } else {
+      open(value, OBJECT, instanceFields.get(theClass), instanceFieldNames.get(theClass), null);
+    }
+  }
+
+  // JSON keys are strings, the keys of maps must not be objects that may have to be filtered
+  private final void writeKey(final Object key) throws IOException {
+    if (key != null && this.modelFilter.classShouldBeFiltered(key.getClass())) {
+      throw new IllegalArgumentException("map keys must not be objects of filtered classes: "
+                                         + key.getClass().getName());
+    } else if (key instanceof String || key instanceof Character || key instanceof Number) {
+      writeString(key.toString());
+    } else if (key instanceof Enum) {
+      writeString(((Enum<?>) key).name());
+    } else {
+      throw new IllegalArgumentException("map keys have to be strings, numbers or enums: "
+                                         + (key != null ? key.getClass().getName() : null));
+    }
+  }
+
+  // value types of the JDK whose string representation can not contain other objects
+  private final void writeJdkValue(final Object value) throws IOException {
+    if (value instanceof OptionalInt) {
+      final OptionalInt optional = (OptionalInt) value;
+      this.writer.write(optional.isPresent() ? Integer.toString(optional.getAsInt()) : "null");
+    } else if (value instanceof OptionalLong) {
+      final OptionalLong optional = (OptionalLong) value;
+      this.writer.write(optional.isPresent() ? Long.toString(optional.getAsLong()) : "null");
+    } else if (value instanceof OptionalDouble) {
+      final OptionalDouble optional = (OptionalDouble) value;
+      writeValue(optional.isPresent() ? Double.valueOf(optional.getAsDouble()) : null);
+    } else if (value instanceof AtomicBoolean) {
+      this.writer.write(Boolean.toString(((AtomicBoolean) value).get()));
+    } else if (value instanceof CharSequence || value instanceof Date || value instanceof TemporalAccessor
+               || value instanceof TemporalAmount || value instanceof ZoneId || value instanceof TimeZone
+               || value instanceof UUID || value instanceof URI || value instanceof URL || value instanceof File
+               || value instanceof Path || value instanceof Locale || value instanceof Currency
+               || value instanceof Charset || value instanceof Pattern || value instanceof Class) {
+      writeString(value.toString());
+    } else {
+      throw new IllegalArgumentException("class can not be written as JSON: " + value.getClass().getName());
+    }
+  }
+
+  private final void open(final Object object, final int kind, final Field[] fields, final String[] names,
+                          final Iterator<?> iterator) throws IOException {
+    if (!this.path.add(object)) {
+      throw new IllegalStateException("cycle in object graph at " + object.getClass().getName());
+    }
+
+    this.writer.write(kind == OBJECT || kind == MAP ? '{' : '[');
+    this.top = new Frame(this.top, object, kind, fields, names, iterator);
+  }
+
+  private final void writePrimitiveArray(final Object array) throws IOException {
+    if (array instanceof char[]) {
+      writeString(new String((char[]) array));
+      return;
+    }
+
+    final String elements;
+    if (array instanceof int[]) {
+      elements = Arrays.toString((int[]) array);
+    } else if (array instanceof long[]) {
+      elements = Arrays.toString((long[]) array);
+    } else if (array instanceof byte[]) {
+      elements = Arrays.toString((byte[]) array);
+    } else if (array instanceof short[]) {
+      elements = Arrays.toString((short[]) array);
+    } else if (array instanceof boolean[]) {
+      elements = Arrays.toString((boolean[]) array);
+    } else {
+      // floating point numbers have to be checked for NaN and infinity
+      final int length = Array.getLength(array);
+      this.writer.write('[');
+      for (int index = 0; index < length; ++index) {
+        if (index > 0) {
+          this.writer.write(',');
+        }
+        writeValue(Array.get(array, index));
+      }
+      this.writer.write(']');
+      return;
+    }
+
+    // "[1, 2, 3]" is valid JSON
+    this.writer.write(elements);
+  }
+
+  private final void writeString(final String string) throws IOException {
+    final Writer writer = this.writer;
+    writer.write('"');
+
+    final int length = string.length();
+    int start = 0;
+    for (int index = 0; index < length; ++index) {
+      final char character = string.charAt(index);
+      if (character >= 0x20 && character != '"' && character != '\\') {
+        continue;
+      }
+
+      writer.write(string, start, index - start);
+      start = index + 1;
+
+      switch (character) {
+        case '"':
+          writer.write("\\\"");
+          break;
+        case '\\':
+          writer.write("\\\\");
+          break;
+        case '\n':
+          writer.write("\\n");
+          break;
+        case '\r':
+          writer.write("\\r");
+          break;
+        case '\t':
+          writer.write("\\t");
+          break;
+        default:
+          writer.write(String.format("\\u%04x", (int) character));
+          break;
+      }
+    }
+
+    writer.write(string, start, length - start);
+    writer.write('"');
+  }
+
+  private static final class Frame {
+
+    private final Frame parent;
+    private final Object object;
+    private final int kind;
+    private final Field[] fields;
+    private final String[] names;
+    private final Iterator<?> iterator;
+
+    private int index;
+    private int count;
+
+    private Frame(final Frame parent, final Object object, final int kind,
+                  final Field[] fields, final String[] names, final Iterator<?> iterator) {
+      this.parent = parent;
+      this.object = object;
+      this.kind = kind;
+      this.fields = fields;
+      this.names = names;
+      this.iterator = iterator;
+      this.index = 0;
+      this.count = 0;
+    }
+
+    private final boolean hasNext() {
+      switch (this.kind) {
+        case OBJECT:
+          return this.index < this.fields.length;
+        case ARRAY:
+          return this.index < ((Object[]) this.object).length;
+        default:
+          return this.iterator.hasNext();
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,110 @@
+package de.pkreutzer.modelfilter;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.BitSet;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import java.lang.reflect.Field;
+
+// copies all fields of a plan by a single method handle: the handles of the fields are folded into one
+// (Traversal, from, to) tree, so that copying an object is one invocation instead of two per field
+final class MethodHandleFieldCopier extends FieldCopier {
+
+  private static final MethodType COPY_TYPE =
+          MethodType.methodType(void.class, Traversal.class, Object.class, Object.class);
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+  private static final MethodType RESETTER_TYPE = MethodType.methodType(void.class, Object.class);
+  private static final MethodType VALUE_FILTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+  private static final MethodHandle FILTER_VALUE;
+  private static final MethodHandle COPY_SHALLOW;
+  private static final MethodHandle COPY_NOTHING;
+
+  static {
+    final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    try {
+      FILTER_VALUE = lookup.findVirtual(Traversal.class, "filterValue", VALUE_FILTER_TYPE);
+      COPY_SHALLOW = lookup.findVirtual(Traversal.class, "copyShallow", VALUE_FILTER_TYPE);
+      COPY_NOTHING = lookup.findStatic(MethodHandleFieldCopier.class, "copyNothing", COPY_TYPE);
+    } catch (final ReflectiveOperationException exception) {
+      throw new ExceptionInInitializerError(exception);
+    }
+  }
+
+  private final Instantiator instantiator;
+  // (Traversal, from, to) copying the included fields and resetting the excluded ones
+  private final MethodHandle copier;
+
+  public MethodHandleFieldCopier(final FilterPlan plan, final BitSet sharedFields) throws IllegalAccessException {
+    super(plan.getIncludedFields().length);
+    final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    final Class<?> theClass = plan.getTheClass();
+
+    final List<MethodHandle> fieldCopiers = new ArrayList<MethodHandle>();
+    final Field[] includedFields = plan.getIncludedFields();
+    for (int fieldIndex = 0; fieldIndex < includedFields.length; ++fieldIndex) {
+      final Field field = includedFields[fieldIndex];
+      final MethodHandle getter = lookup.unreflectGetter(field);
+      final MethodHandle setter = lookup.unreflectSetter(field);
+
+      if (field.getType().isPrimitive()) {
+        // setter(to, getter(from)) with the arguments swapped to (from, to), the value is not boxed
+        final Class<?> declaringClass = field.getDeclaringClass();
+        final MethodHandle copier = MethodHandles.filterArguments(setter, 1, getter);
+        final MethodHandle primitiveCopier =
+                MethodHandles.permuteArguments(copier,
+                                               MethodType.methodType(void.class, declaringClass, declaringClass),
+                                               1, 0).
+                  asType(SETTER_TYPE);
+        fieldCopiers.add(MethodHandles.dropArguments(primitiveCopier, 0, Traversal.class));
+      } else {
+        // setter(to, traversal.filterValue(getter(from))) with the arguments reordered to (traversal, from, to)
+        final MethodHandle valueFilter = sharedFields.get(fieldIndex) ? COPY_SHALLOW : FILTER_VALUE;
+        final MethodHandle value = MethodHandles.filterArguments(valueFilter, 1, getter.asType(GETTER_TYPE));
+        final MethodHandle referenceCopier = MethodHandles.collectArguments(setter.asType(SETTER_TYPE), 1, value);
+        fieldCopiers.add(MethodHandles.permuteArguments(referenceCopier, COPY_TYPE, 2, 0, 1));
+      }
+    }
+
+    // bind the default value so that resetting a field does not need any argument but the target
+    final Field[] excludedFields = plan.getExcludedFields();
+    final Object[] excludedDefaults = plan.getExcludedDefaults();
+    for (int index = 0; index < excludedFields.length; ++index) {
+      final MethodHandle setter = lookup.unreflectSetter(excludedFields[index]);
+      final MethodHandle resetter =
+              MethodHandles.insertArguments(setter, 1, excludedDefaults[index]).asType(RESETTER_TYPE);
+      fieldCopiers.add(MethodHandles.dropArguments(resetter, 0, Traversal.class, Object.class));
+    }
+
+    // foldArguments invokes the folded handle before the target, so the chain is built from the last field
+    MethodHandle copier = COPY_NOTHING;
+    for (int index = fieldCopiers.size() - 1; index >= 0; --index) {
+      copier = MethodHandles.foldArguments(copier, fieldCopiers.get(index));
+    }
+    this.copier = copier;
+
+    this.instantiator = Instantiator.of(theClass);
+  }
+
+  @SuppressWarnings("unused")
+  private static final void copyNothing(final Traversal traversal, final Object from, final Object to) {
+    // end of the chain of field copiers
+  }
+
+  @Override
+  public final Object newInstance() throws Throwable {
+    return this.instantiator.newInstance();
+  }
+
+  @Override
+  public final void copy(final Traversal traversal, final Object from, final Object to)
+      throws Throwable {
+    this.copier.invokeExact(traversal, from, to);
+  }
+
+}
@@ -4,11 +4,37 @@ import java.util.Set;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
-import java.lang.reflect.Field;
 import java.lang.reflect.Array;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
 
 public final class ModelFilter {
 
@@ -16,228 +42,691 @@ public final class ModelFilter {
   //       F L U E N T   I N T E R F A C E
   // ==================================================================================
 
+  // small graphs (e.g., flat objects) are the common case, larger ones grow the map as needed
+  private static final int DEFAULT_GRAPH_SIZE = 8;
+  private static final int DEFAULT_IDENTITY_WINDOW = 1024;
+
+  // immutable configuration, a filter can be shared between threads
   private final Set<Class<?>> filteredClasses;
   private final Set<Class<? extends View>> views;
+  private final ViewSet viewSet;
+  private final AccessStrategy accessStrategy;
+  private final int expectedGraphSize;
+  private final Parallelism parallelism;
+  private final int identityWindow;
+  private final boolean reuseCompliantObjects;
+  private final Map<Class<?>, Supplier<?>> factories;
+  private final Map<Class<?>, CollectionFactory> collectionFactories;
+  private final FilterListener listener;
+  private final String viewSetName;
+
+  // owned by the filter (not stored with the classes, which would pin the class loader of this library
+  // through the classes of the JDK), i.e., released together with the filter
+  private final ConcurrentMap<Class<?>, ClassMetadata> classMetadata;
+
+  private ModelFilter(final Set<Class<?>> filteredClasses, final Set<Class<? extends View>> views,
+                      final AccessStrategy accessStrategy, final int expectedGraphSize,
+                      final Parallelism parallelism, final int identityWindow,
+                      final boolean reuseCompliantObjects, final Map<Class<?>, Supplier<?>> factories,
+                      final Map<Class<?>, CollectionFactory> collectionFactories,
+                      final FilterListener listener) {
+    this.filteredClasses = Collections.unmodifiableSet(new HashSet<Class<?>>(filteredClasses));
+    this.views = FilterPlan.normalizeViews(views);
+    this.viewSet = ViewSet.of(this.views);
+    this.accessStrategy = accessStrategy;
+    this.expectedGraphSize = expectedGraphSize;
+    this.parallelism = parallelism;
+    this.identityWindow = identityWindow;
+    this.reuseCompliantObjects = reuseCompliantObjects;
+    this.factories = Collections.unmodifiableMap(new HashMap<Class<?>, Supplier<?>>(factories));
+    this.collectionFactories =
+            Collections.unmodifiableMap(new HashMap<Class<?>, CollectionFactory>(collectionFactories));
+    this.listener = listener;
+    this.viewSetName = viewSetNameOf(this.views);
+    this.classMetadata = new ConcurrentHashMap<Class<?>, ClassMetadata>();
+  }
 
-  private final Map<Object, Object> filteredObjects;
+  public static final Builder buildFilter() {
+    return new Builder();
+  }
 
-  private ModelFilter() {
-    this.filteredClasses = new HashSet<Class<?>>();
-    this.views = new HashSet<Class<? extends View>>();
-    this.filteredObjects = new HashMap<Object, Object>();
+  public final Set<Class<?>> getFilteredClasses() {
+    return this.filteredClasses;
   }
 
-  public static final ModelFilter buildFilter() {
-    return new ModelFilter();
+  public final Set<Class<? extends View>> getViews() {
+    return this.views;
   }
 
-  public final ModelFilter forClass(final Class<?> filteredClass) {
-    this.filteredClasses.add(filteredClass);
-    return this;
+  // null if the filter does not work in parallel
+  final Parallelism getParallelism() {
+    return this.parallelism;
   }
 
-  public final ModelFilter forClasses(final Class<?>... filteredClasses) {
-    for (final Class<?> filteredClass : filteredClasses) {
-      this.filteredClasses.add(filteredClass);
+  // null if no listener has been registered
+  final FilterListener getListener() {
+    return this.listener;
+  }
+
+  final String getViewSetName() {
+    return this.viewSetName;
+  }
+
+  // sorted simple names of the views (unique enough to tell the view sets of an application apart)
+  private static final String viewSetNameOf(final Set<Class<? extends View>> views) {
+    final List<String> names = new ArrayList<String>(views.size());
+    for (final Class<? extends View> view : views) {
+      names.add(view.getSimpleName());
     }
+    Collections.sort(names);
 
-    return this;
+    final StringBuilder viewSetName = new StringBuilder();
+    for (final String name : names) {
+      if (viewSetName.length() > 0) {
+        viewSetName.append(',');
+      }
+      viewSetName.append(name);
+    }
+
+    return viewSetName.toString();
   }
 
-  public final ModelFilter useView(final Class<? extends View> view) {
-    this.views.add(view);
-    return this;
+  final boolean reusesCompliantObjects() {
+    return this.reuseCompliantObjects;
   }
 
-  @SafeVarargs
-  public final ModelFilter useViews(final Class<? extends View>... views) {
-    for (final Class<? extends View> view : views) {
-      this.views.add(view);
+  // null if there is no factory registered for exactly this class
+  final Instantiator factoryFor(final Class<?> theClass) {
+    return metadataOf(theClass).factory;
+  }
+
+  final CollectionFactory collectionFactoryFor(final Class<?> theClass) {
+    return metadataOf(theClass).collectionFactory;
+  }
+
+  // everything the filter knows about a class, fetched once per object by traversals
+  final ClassMetadata metadataOf(final Class<?> theClass) {
+    ClassMetadata metadata = this.classMetadata.get(theClass);
+
+    if (metadata == null) {
+      final Supplier<?> factory = this.factories.get(theClass);
+      metadata = new ClassMetadata(isFilteredClassOrSubclass(theClass),
+                                   mayReachFilteredClass(theClass),
+                                   factory != null ? Instantiator.of(factory) : null,
+                                   Collection.class.isAssignableFrom(theClass) ? collectionFactoryOf(theClass) : null);
+
+      final ClassMetadata existingMetadata = this.classMetadata.putIfAbsent(theClass, metadata);
+      if (existingMetadata != null) {
+        metadata = existingMetadata;
+      }
     }
 
-    return this;
+    return metadata;
+  }
+
+  // registered collection factory, registered factory, or default factory
+  private final CollectionFactory collectionFactoryOf(final Class<?> theClass) {
+    final CollectionFactory collectionFactory = this.collectionFactories.get(theClass);
+    if (collectionFactory != null) {
+      return collectionFactory;
+    }
+
+    final Supplier<?> factory = this.factories.get(theClass);
+    return factory != null ? CollectionFactories.of(factory) : CollectionFactories.defaultFor(theClass);
+  }
+
+  final FilterPlan planFor(final Class<?> theClass) {
+    final ClassMetadata metadata = metadataOf(theClass);
+    FilterPlan plan = metadata.plan;
+
+    if (plan == null) {
+      plan = FilterPlan.of(theClass, this.viewSet);
+      metadata.plan = plan;
+    }
+
+    return plan;
+  }
+
+  // per-invocation state (e.g., the objects filtered so far) is private to the traversal, isBatch if it filters
+  // multiple roots (see applyToAll)
+  final Traversal newTraversal(final boolean isBatch) {
+    return new Traversal(this, isBatch);
+  }
+
+  // map from original to filtered objects of a traversal
+  final ObjectMap newObjectMap() {
+    return this.parallelism != null
+           ? new ConcurrentIdentityObjectMap(this.expectedGraphSize)
+           : new IdentityObjectMap(this.expectedGraphSize);
   }
 
-  @SuppressWarnings("unchecked")
   public final <T> T applyTo(final T objectToFilter) {
-    if (objectToFilter == null) {
-      return null;
+    return newTraversal(false).filter(objectToFilter);
+  }
+
+  // filters source into target (same class, e.g., the result of a previous call) instead of cloning it: objects,
+  // arrays and lists of the target graph at the same positions are reused and overwritten, other collections and
+  // maps are cleared and refilled; the target graph must not share objects with the source graph or other graphs
+  // still in use (i.e., it should not stem from reused compliant objects)
+  public final <T> T filterInto(final T source, final T target) {
+    if (source == null || target == null) {
+      throw new IllegalArgumentException("source and target must not be null");
     }
 
-    if (this.filteredObjects.containsKey(objectToFilter)) {
-      return (T) this.filteredObjects.get(objectToFilter);
+    return newTraversal(false).filter(source, target);
+  }
+
+  // column-oriented alternative to applyToAll for objects of exactly one filtered class, e.g., for exporters:
+  // one array per included field instead of one clone per object, references are filtered as usual
+  public final ColumnarProjection projectColumns(final Collection<?> objectsToFilter, final Class<?> theClass) {
+    if (!classShouldBeFiltered(theClass)) {
+      throw new IllegalArgumentException("class is not filtered: " + theClass.getName());
     }
 
-    final Class<?> theClass = objectToFilter.getClass();
+    final Object[] objects = objectsToFilter.toArray();
+    for (final Object object : objects) {
+      if (object == null || object.getClass() != theClass) {
+        throw new IllegalArgumentException("not an object of class " + theClass.getName() + ": " + object);
+      }
+    }
 
     try {
-      if (theClass.isArray()) {
-        // primitive arrays do not have to be filtered
-        if (theClass.getComponentType().isPrimitive()) {
-          return objectToFilter;
-        }
-
-        final Object[] originalArray = (Object[]) objectToFilter;
-        final Object[] clonedArray = cloneArray(originalArray);
+      return new ColumnarProjection(planFor(theClass), objects, newTraversal(false));
+    } catch (final IllegalAccessException exception) {
+      throw new CloningFailedException(exception, objectsToFilter);
+    }
+  }
 
-        return (T) clonedArray;
-      } else if (objectToFilter instanceof Collection) {
-        final Collection originalCollection = (Collection) objectToFilter;
-        final Collection clonedCollection = cloneCollection(originalCollection);
+  // resets the fields that do not match the views to their default values on the original objects instead of
+  // cloning them (for graphs that are discarded afterwards), hash based collections and maps whose elements (keys)
+  // changed their hash codes, directly or through nested collections, are rebuilt; throws CloningFailedException
+  // if such a collection or map is unmodifiable; returns objectToRedact
+  public final <T> T redactInPlace(final T objectToRedact) {
+    return newTraversal(false).redact(objectToRedact);
+  }
 
-        return (T) clonedCollection;
-      } else {
-        if (!classShouldBeFiltered(theClass)) {
-          return objectToFilter;
-        }
+  // filters all objects in one pass, objects referenced by multiple of them are cloned only once (compliant
+  // objects that are reused are shared as they are, see Builder.reuseCompliantObjects)
+  @SuppressWarnings("unchecked")
+  public final <T> List<T> applyToAll(final Iterable<T> objectsToFilter) {
+    final Traversal traversal = newTraversal(true);
 
-        final T clone = filterObject(objectToFilter);
-        return clone;
+    if (!(objectsToFilter instanceof Collection)) {
+      final List<T> filteredObjects = new ArrayList<T>();
+      for (final T objectToFilter : objectsToFilter) {
+        filteredObjects.add(traversal.filter(objectToFilter));
       }
-    } catch (final Throwable throwable) {
-      // unable to clone object
-      throw new CloningFailedException(throwable, objectToFilter);
+
+      return filteredObjects;
+    }
+
+    final Collection<T> collection = (Collection<T>) objectsToFilter;
+
+    if (this.parallelism != null) {
+      final Object[] objects = collection.toArray();
+      final Object[] filteredObjects = new Object[objects.length];
+      traversal.filterAll(objects, filteredObjects);
+
+      return new ArrayList<T>((List<T>) Arrays.asList(filteredObjects));
+    }
+
+    final List<T> filteredObjects = new ArrayList<T>(collection.size());
+    for (final T objectToFilter : collection) {
+      filteredObjects.add(traversal.filter(objectToFilter));
     }
+
+    return filteredObjects;
+  }
+
+  // filters the elements lazily while they are consumed, memory does not grow with the number of elements
+  // as objects referenced by multiple elements are only shared within a window of consecutive elements
+  public final <T> Iterator<T> filterIterator(final Iterator<T> objectsToFilter) {
+    return new FilteringIterator<T>(this, objectsToFilter, this.identityWindow);
+  }
+
+  public final <T> Stream<T> filterStream(final Stream<T> objectsToFilter) {
+    final Spliterator<T> spliterator =
+            Spliterators.spliteratorUnknownSize(filterIterator(objectsToFilter.iterator()), Spliterator.ORDERED);
+
+    return StreamSupport.stream(spliterator, false).onClose(new Runnable() {
+      @Override
+      public final void run() {
+        objectsToFilter.close();
+      }
+    });
+  }
+
+  @SuppressWarnings("unchecked")
+  public final <T> T[] applyToAll(final T[] objectsToFilter) {
+    final T[] filteredObjects =
+            (T[]) Array.newInstance(objectsToFilter.getClass().getComponentType(), objectsToFilter.length);
+
+    newTraversal(true).filterAll(objectsToFilter, filteredObjects);
+
+    return filteredObjects;
+  }
+
+  // read-only proxy instead of a clone: getters of fields that do not match the views return default values,
+  // objects returned by getters with an interface type are wrapped lazily, other values are filtered as usual
+  public final <I> I applyAsProxy(final I objectToFilter, final Class<I> interfaceType) {
+    return interfaceType.cast(ProxyHandler.newProxy(this, objectToFilter, interfaceType));
   }
 
-  private final Object[] cloneArray(final Object[] originalArray)
-      throws IllegalAccessException, NoSuchMethodException, InstantiationException, InvocationTargetException {
-    final int arrayLength = originalArray.length;
+  // writes the filtered object graph as JSON without creating clones, excluded fields are skipped
+  public final void writeJson(final Object objectToFilter, final Writer writer) throws IOException {
+    try {
+      new JsonWriter(this, writer).write(objectToFilter);
+    } catch (final IllegalAccessException exception) {
+      throw new CloningFailedException(exception, objectToFilter);
+    }
+  }
 
-    final Object[] clonedArray =
-            (Object[]) Array.newInstance(originalArray.getClass().getComponentType(), arrayLength);
+  // UTF-8, the stream is flushed but not closed
+  public final void writeJson(final Object objectToFilter, final OutputStream outputStream) throws IOException {
+    final Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    writeJson(objectToFilter, writer);
+    writer.flush();
+  }
 
-    // save cloned array to map so that we can re-use it in case of cycles
-    this.filteredObjects.put(originalArray, clonedArray);
+  public final <T> void copyAnnotatedFields(final T from, final T to) throws IllegalAccessException {
+    final Traversal traversal = newTraversal(false);
 
-    for (int index = 0; index < arrayLength; ++index) {
-      final Object element = originalArray[index];
-      final Object clonedElement = applyTo(element);
-      clonedArray[index] = clonedElement;
+    try {
+      copierFor(from.getClass()).copy(traversal, from, to);
+    } catch (final IllegalAccessException | RuntimeException | Error exception) {
+      throw exception;
+    } catch (final Throwable throwable) {
+      throw new CloningFailedException(throwable, from);
     }
 
-    return clonedArray;
+    traversal.finish();
   }
 
-  private final Collection cloneCollection(final Collection originalCollection)
-      throws IllegalAccessException, NoSuchMethodException, InstantiationException, InvocationTargetException {
-    @SuppressWarnings("unchecked")
-    final Collection<Object> clonedCollection =
-            (Collection<Object>) originalCollection.getClass().getConstructor().newInstance();
+  final FieldCopier copierFor(final Class<?> theClass) throws IllegalAccessException {
+    return copierFor(metadataOf(theClass), theClass);
+  }
 
-    // save cloned object to map so that we can re-use it in case of cycles
-    this.filteredObjects.put(originalCollection, clonedCollection);
+  final FieldCopier copierFor(final ClassMetadata metadata, final Class<?> theClass) throws IllegalAccessException {
+    FieldCopier copier = metadata.copier;
 
-    for (final Object element : originalCollection) {
-      final Object clonedElement = applyTo(element);
-      clonedCollection.add(clonedElement);
+    if (copier == null) {
+      final FilterPlan plan = planFor(theClass);
+      copier = plan.getCopier(this.accessStrategy, sharedFieldsOf(plan));
+      metadata.copier = copier;
     }
 
-    return clonedCollection;
+    return copier;
   }
 
-  private final <T> T filterObject(final T objectToFilter) 
-      throws IllegalAccessException, NoSuchMethodException, InstantiationException, InvocationTargetException {
-    // create a clone
-    // TODO do not clone object if it is already filtered correctly
-    @SuppressWarnings("unchecked")
-    final T clone = (T) objectToFilter.getClass().getConstructor().newInstance();
+  // included fields whose declared types can not reach filtered classes
+  private final BitSet sharedFieldsOf(final FilterPlan plan) {
+    final Field[] includedFields = plan.getIncludedFields();
+    final BitSet sharedFields = new BitSet(includedFields.length);
 
-    // save cloned object to map so that we can re-use it in case of cycles
-    this.filteredObjects.put(objectToFilter, clone);
+    for (int index = 0; index < includedFields.length; ++index) {
+      final Field field = includedFields[index];
+      if (!field.getType().isPrimitive() && !mayReachFilteredClass(field.getGenericType())) {
+        sharedFields.set(index);
+      }
+    }
 
-    // copy values to clone
-    copyAnnotatedFields(objectToFilter, clone);
+    return sharedFields;
+  }
 
-    return clone;
+  // false for runtime classes of arrays that can not contain objects of filtered classes (e.g., String[][])
+  final boolean arrayMayReachFilteredClass(final Class<?> arrayClass) {
+    return metadataOf(arrayClass).mayReachFilteredClass;
   }
 
-  public final <T> void copyAnnotatedFields(final T from, final T to) throws IllegalAccessException {
-    for (Class objectClass = from.getClass();
-         !objectClass.equals(Object.class);
-         objectClass = objectClass.getSuperclass()) {
-      // iterate over all fields
-      for (final Field field : objectClass.getDeclaredFields()) {
-        field.setAccessible(true);
-
-        // check if field has @InView annotation and matches view
-        if (isAnnotatedAccordingToViews(field, views)) {
-          // apply the filter to the object the field is referring to
-          final Object filteredValue = applyTo(field.get(from));
-
-          // set field's value in clone
-          field.set(to, filteredValue);
-        } else {
-          // set to default value
-          final Class<?> fieldType = field.getType();
-          if (fieldType.equals(boolean.class)) {
-            field.setBoolean(to, false);
-          } else if (fieldType.isPrimitive()) {
-            // this even works for the other primitive types like long or double
-            field.setByte(to, (byte)(0));
-          } else {
-            field.set(to, null);
-          }
+  // true if a value of the type may be an object of a filtered class or an array, collection or map that
+  // contains one (as far as the type tells, i.e., the elements of a raw collection may be anything)
+  private final boolean mayReachFilteredClass(final Type type) {
+    if (type instanceof Class) {
+      final Class<?> theClass = (Class<?>) type;
+
+      if (theClass.isPrimitive()) {
+        return false;
+      } else if (theClass.isArray()) {
+        return mayReachFilteredClass(theClass.getComponentType());
+      } else if (Collection.class.isAssignableFrom(theClass) || Map.class.isAssignableFrom(theClass)) {
+        return true;
+      }
+      return mayBeFiltered(theClass);
+    } else if (type instanceof ParameterizedType) {
+      final Class<?> rawClass = (Class<?>) ((ParameterizedType) type).getRawType();
+      final Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+
+      // the type arguments of the collections and maps of the JDK are the types of their elements (keys, values)
+      final boolean isContainer = rawClass.getClassLoader() == null
+                                  && ((Collection.class.isAssignableFrom(rawClass) && arguments.length == 1)
+                                      || (Map.class.isAssignableFrom(rawClass) && arguments.length == 2));
+      if (!isContainer) {
+        return mayReachFilteredClass(rawClass);
+      }
+
+      for (final Type argument : arguments) {
+        if (mayReachFilteredClass(argument)) {
+          return true;
         }
       }
+      return false;
+    } else if (type instanceof GenericArrayType) {
+      return mayReachFilteredClass(((GenericArrayType) type).getGenericComponentType());
+    } else if (type instanceof WildcardType) {
+      return mayReachAny(((WildcardType) type).getUpperBounds());
+    } else if (type instanceof TypeVariable) {
+      return mayReachAny(((TypeVariable<?>) type).getBounds());
     }
+
+    return true;
   }
 
-  private final boolean classShouldBeFiltered(Class<?> theClass) {
-    while (!theClass.equals(Object.class)) {
-      if (this.filteredClasses.contains(theClass)) {
+  private final boolean mayReachAny(final Type[] types) {
+    for (final Type type : types) {
+      if (mayReachFilteredClass(type)) {
         return true;
       }
-      theClass = theClass.getSuperclass();
     }
-
     return false;
   }
 
-  public static final boolean viewsDoMatch(final Class<? extends View> annotatedView,
-                                           final Set<Class<? extends View>> views) {
-    for (final Class<? extends View> filterView : views) {
-      if (annotatedView.isAssignableFrom(filterView)) {
+  // class that is neither an array nor a collection or map
+  private final boolean mayBeFiltered(final Class<?> theClass) {
+    if (theClass.equals(Object.class) || theClass.isInterface()) {
+      // could be anything, including arrays, collections and subclasses of filtered classes
+      return true;
+    }
+
+    for (final Class<?> filteredClass : this.filteredClasses) {
+      if (theClass.isAssignableFrom(filteredClass) || filteredClass.isAssignableFrom(theClass)) {
+        return true;
+      }
+    }
+
+    // subclasses of other classes of the JDK (e.g., BigDecimal) are assumed not to be collections
+    return !Modifier.isFinal(theClass.getModifiers()) && theClass.getClassLoader() != null;
+  }
+
+  final boolean classShouldBeFiltered(final Class<?> theClass) {
+    return metadataOf(theClass).shouldBeFiltered;
+  }
+
+  private final boolean isFilteredClassOrSubclass(Class<?> theClass) {
+    while (theClass != null && !theClass.equals(Object.class)) {
+      if (this.filteredClasses.contains(theClass)) {
         return true;
       }
+      theClass = theClass.getSuperclass();
     }
 
     return false;
   }
 
+  public static final boolean viewsDoMatch(final Class<? extends View> annotatedView,
+                                           final Set<Class<? extends View>> views) {
+    return ViewSet.matches(annotatedView, views);
+  }
+
   public static final boolean isAnnotatedAccordingToViews(final Field field,
                                                           final Set<Class<? extends View>> views) {
-    final InView annotation = field.getAnnotation(InView.class);
+    return ViewSet.includes(field, views);
+  }
 
-    if (annotation == null) {
-      return false;
+  static final class ClassMetadata {
+
+    private final boolean shouldBeFiltered;
+    private final boolean mayReachFilteredClass;
+    private final Instantiator factory;
+    private final CollectionFactory collectionFactory;
+    // racy but idempotent initialization, see planFor and copierFor
+    private volatile FilterPlan plan;
+    private volatile FieldCopier copier;
+
+    private ClassMetadata(final boolean shouldBeFiltered, final boolean mayReachFilteredClass,
+                          final Instantiator factory, final CollectionFactory collectionFactory) {
+      this.shouldBeFiltered = shouldBeFiltered;
+      this.mayReachFilteredClass = mayReachFilteredClass;
+      this.factory = factory;
+      this.collectionFactory = collectionFactory;
+      this.plan = null;
+      this.copier = null;
+    }
+
+    final boolean shouldBeFiltered() {
+      return this.shouldBeFiltered;
+    }
+
+    // null if there is no factory registered for exactly this class
+    final Instantiator getFactory() {
+      return this.factory;
     }
 
-    // found field that is annotated by @InView(...)
-    // check if view classes match
-    final Class<? extends View> annotationView = annotation.value();
-    return viewsDoMatch(annotationView, views);
   }
 
   // ==================================================================================
   //       S I M P L E   I N T E R F A C E
   // ==================================================================================
 
+  // filters built by filter, stored with their first view by class of the object to filter and view set: views
+  // implement View, i.e., their class loaders can see this library anyway, and the filters are released together
+  // with the views (the classes of the objects to filter have to be visible from the first view, see filter)
+  private static final ClassValue<ConcurrentMap<Class<?>, ConcurrentMap<ViewSet, ModelFilter>>> simpleFilters =
+      new ClassValue<ConcurrentMap<Class<?>, ConcurrentMap<ViewSet, ModelFilter>>>() {
+        @Override
+        protected final ConcurrentMap<Class<?>, ConcurrentMap<ViewSet, ModelFilter>> computeValue(
+            final Class<?> view) {
+          return new ConcurrentHashMap<Class<?>, ConcurrentMap<ViewSet, ModelFilter>>();
+        }
+      };
+
+  // the filter is built once per class and view set and shared by all calls (unless there are no views or the
+  // class of the object is loaded by a class loader the first view can not see, e.g., a child class loader)
   @SafeVarargs
   public static final <T> T filter(final T objectToFilter, final Class<? extends View>... views) {
     if (objectToFilter == null) {
       return null;
     }
 
-    final ModelFilter modelFilter = buildFilter();
     final Class<?> theClass = objectToFilter.getClass();
+    if (views.length == 0 || !isVisibleFrom(theClass, views[0])) {
+      return buildFilter().
+               forClass(theClass).
+               useViews(views).
+               applyTo(objectToFilter);
+    }
 
-    modelFilter.forClass(theClass);
-    for (final Class<? extends View> view : views) {
-      modelFilter.useView(view);
+    final ConcurrentMap<Class<?>, ConcurrentMap<ViewSet, ModelFilter>> filtersOfView = simpleFilters.get(views[0]);
+    ConcurrentMap<ViewSet, ModelFilter> filters = filtersOfView.get(theClass);
+    if (filters == null) {
+      filters = new ConcurrentHashMap<ViewSet, ModelFilter>();
+
+      final ConcurrentMap<ViewSet, ModelFilter> existingFilters = filtersOfView.putIfAbsent(theClass, filters);
+      if (existingFilters != null) {
+        filters = existingFilters;
+      }
+    }
+
+    final ViewSet viewSet = ViewSet.of(views);
+    ModelFilter filter = filters.get(viewSet);
+    if (filter == null) {
+      filter = buildFilter().
+                 forClass(theClass).
+                 useViews(views).
+                 build();
+
+      final ModelFilter existingFilter = filters.putIfAbsent(viewSet, filter);
+      if (existingFilter != null) {
+        filter = existingFilter;
+      }
+    }
+
+    return filter.applyTo(objectToFilter);
+  }
+
+  // true if theClass is loaded by the class loader of view or one of its ancestors
+  private static final boolean isVisibleFrom(final Class<?> theClass, final Class<?> view) {
+    final ClassLoader classLoader = theClass.getClassLoader();
+    if (classLoader == null) {
+      return true;
+    }
+
+    try {
+      for (ClassLoader loader = view.getClassLoader(); loader != null; loader = loader.getParent()) {
+        if (loader == classLoader) {
+          return true;
+        }
+      }
+    } catch (final SecurityException exception) {
+      // parents are not accessible
+    }
+
+    return false;
+  }
+
+  // ==================================================================================
+  //       B U I L D E R
+  // ==================================================================================
+
+  public static final class Builder {
+
+    private final Set<Class<?>> filteredClasses;
+    private final Set<Class<? extends View>> views;
+    private AccessStrategy accessStrategy;
+    private int expectedGraphSize;
+    private Parallelism parallelism;
+    private int identityWindow;
+    private boolean reuseCompliantObjects;
+    private final Map<Class<?>, Supplier<?>> factories;
+    private final Map<Class<?>, CollectionFactory> collectionFactories;
+    private FilterListener listener;
+
+    private Builder() {
+      this.filteredClasses = new HashSet<Class<?>>();
+      this.views = new HashSet<Class<? extends View>>();
+      this.accessStrategy = AccessStrategy.GENERATED;
+      this.expectedGraphSize = DEFAULT_GRAPH_SIZE;
+      this.parallelism = null;
+      this.identityWindow = DEFAULT_IDENTITY_WINDOW;
+      this.reuseCompliantObjects = false;
+      this.factories = new HashMap<Class<?>, Supplier<?>>();
+      this.collectionFactories = new HashMap<Class<?>, CollectionFactory>();
+      this.listener = null;
+    }
+
+    public final Builder forClass(final Class<?> filteredClass) {
+      this.filteredClasses.add(filteredClass);
+      return this;
+    }
+
+    public final Builder forClasses(final Class<?>... filteredClasses) {
+      for (final Class<?> filteredClass : filteredClasses) {
+        this.filteredClasses.add(filteredClass);
+      }
+
+      return this;
+    }
+
+    public final Builder useView(final Class<? extends View> view) {
+      this.views.add(view);
+      return this;
+    }
+
+    @SafeVarargs
+    public final Builder useViews(final Class<? extends View>... views) {
+      for (final Class<? extends View> view : views) {
+        this.views.add(view);
+      }
+
+      return this;
+    }
+
+    // number of objects expected to be filtered per call, avoids resizing the map used for detecting cycles
+    // (8 by default, the map is created when the first object is cloned)
+    public final Builder expectedGraphSize(final int expectedGraphSize) {
+      this.expectedGraphSize = expectedGraphSize;
+      return this;
+    }
+
+    public final Builder useAccessStrategy(final AccessStrategy accessStrategy) {
+      this.accessStrategy = accessStrategy;
+      return this;
+    }
+
+    // arrays and collections with at least threshold elements are filtered in parallel (common pool)
+    public final Builder useParallelism(final int threshold) {
+      return useParallelism(ForkJoinPool.commonPool(), threshold);
+    }
+
+    public final Builder useParallelism(final ForkJoinPool pool, final int threshold) {
+      this.parallelism = new Parallelism(pool, threshold);
+      return this;
+    }
+
+    // number of consecutive elements of filterIterator/filterStream sharing clones of common objects
+    public final Builder identityWindow(final int identityWindow) {
+      if (identityWindow < 1) {
+        throw new IllegalArgumentException("identity window has to be positive: " + identityWindow);
+      }
+
+      this.identityWindow = identityWindow;
+      return this;
+    }
+
+    // return objects that are already filtered correctly instead of cloning them (not by default): the result may
+    // then be the caller's own object (or share objects with it), so modifying it modifies the original
+    public final Builder reuseCompliantObjects(final boolean reuseCompliantObjects) {
+      this.reuseCompliantObjects = reuseCompliantObjects;
+      return this;
+    }
+
+    // creates the clones of objects (or the copies of collections) of exactly this class, e.g., by a static
+    // factory method or a builder, instead of the no-arg constructor
+    public final <T> Builder withFactory(final Class<T> theClass, final Supplier<? extends T> factory) {
+      if (factory == null) {
+        throw new IllegalArgumentException("factory must not be null");
+      }
+
+      this.factories.put(theClass, factory);
+      return this;
+    }
+
+    // creates the filtered copies of collections of exactly this class (takes precedence over withFactory)
+    public final Builder withCollectionFactory(final Class<? extends Collection> collectionClass,
+                                               final CollectionFactory collectionFactory) {
+      if (collectionFactory == null) {
+        throw new IllegalArgumentException("collection factory must not be null");
+      }
+
+      this.collectionFactories.put(collectionClass, collectionFactory);
+      return this;
+    }
+
+    // notified with the statistics of each filtered root object (e.g., FilterMetrics), not called otherwise
+    public final Builder withListener(final FilterListener listener) {
+      this.listener = listener;
+      return this;
+    }
+
+    // the filter is immutable and can be used concurrently
+    public final ModelFilter build() {
+      return new ModelFilter(this.filteredClasses, this.views, this.accessStrategy,
+                             this.expectedGraphSize, this.parallelism, this.identityWindow,
+                             this.reuseCompliantObjects, this.factories, this.collectionFactories,
+                             this.listener);
+    }
+
+    public final <T> T applyTo(final T objectToFilter) {
+      return build().applyTo(objectToFilter);
+    }
+
+    public final <T> List<T> applyToAll(final Iterable<T> objectsToFilter) {
+      return build().applyToAll(objectsToFilter);
+    }
+
+    public final <T> T[] applyToAll(final T[] objectsToFilter) {
+      return build().applyToAll(objectsToFilter);
     }
 
-    return modelFilter.applyTo(objectToFilter);
   }
 
 }
@@ -0,0 +1,12 @@
+package de.pkreutzer.modelfilter;
+
+// identity-keyed map from original to filtered objects, keys and values are never null
+interface ObjectMap {
+
+  // returns null if there is no value for the key
+  public Object get(final Object key);
+
+  // returns the existing value or null if the value was added
+  public Object putIfAbsent(final Object key, final Object value);
+
+}
@@ -0,0 +1,28 @@
+package de.pkreutzer.modelfilter;
+
+import java.util.concurrent.ForkJoinPool;
+
+// arrays and collections with at least threshold elements are filtered in parallel using the pool
+final class Parallelism {
+
+  private final ForkJoinPool pool;
+  private final int threshold;
+
+  public Parallelism(final ForkJoinPool pool, final int threshold) {
+    if (threshold < 1) {
+      throw new IllegalArgumentException("threshold has to be positive: " + threshold);
+    }
+
+    this.pool = pool;
+    this.threshold = threshold;
+  }
+
+  public final ForkJoinPool getPool() {
+    return this.pool;
+  }
+
+  public final int getThreshold() {
+    return this.threshold;
+  }
+
+}
@@ -0,0 +1,102 @@
+package de.pkreutzer.modelfilter;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+// read-only proxy of a model object: getters of fields matching the views are forwarded, getters of other
+// fields return default values, objects returned through interfaces are wrapped lazily as well
+final class ProxyHandler implements InvocationHandler {
+
+  private final Context context;
+  private final Object object;
+  private final FilterPlan plan;
+
+  private ProxyHandler(final Context context, final Object object, final FilterPlan plan) {
+    this.context = context;
+    this.object = object;
+    this.plan = plan;
+  }
+
+  public static final Object newProxy(final ModelFilter modelFilter, final Object object,
+                                      final Class<?> interfaceType) {
+    return new Context(modelFilter).wrap(object, interfaceType);
+  }
+
+  @Override
+  public final Object invoke(final Object proxy, final Method method, final Object[] arguments)
+      throws Throwable {
+    if (method.getDeclaringClass().equals(Object.class)) {
+      return invokeObjectMethod(proxy, method, arguments);
+    }
+
+    final FilterPlan.Getter getter = this.plan.getGetter(method);
+    if (getter == null) {
+      throw new UnsupportedOperationException("read-only proxy does not support " + method);
+    }
+
+    if (!getter.isIncluded()) {
+      return FilterPlan.defaultValue(method.getReturnType());
+    }
+
+    return this.context.wrap(getter.getField().get(this.object), method.getReturnType());
+  }
+
+  private final Object invokeObjectMethod(final Object proxy, final Method method, final Object[] arguments) {
+    final String name = method.getName();
+
+    if (name.equals("equals")) {
+      return Boolean.valueOf(proxy == arguments[0]);
+    } else if (name.equals("hashCode")) {
+      return Integer.valueOf(System.identityHashCode(proxy));
+    } else {
+      return "proxy of " + this.object.getClass().getName() + "@"
+             + Integer.toHexString(System.identityHashCode(this.object));
+    }
+  }
+
+  // state shared by all proxies created for the same root object
+  private static final class Context {
+
+    private final ModelFilter modelFilter;
+    private final ObjectMap wrappedObjects;
+
+    private Context(final ModelFilter modelFilter) {
+      this.modelFilter = modelFilter;
+      // proxies may be used by multiple threads
+      this.wrappedObjects = new ConcurrentIdentityObjectMap(16);
+    }
+
+    private final Object wrap(final Object value, final Class<?> type) {
+      if (value == null) {
+        return null;
+      }
+
+      final Object wrappedObject = this.wrappedObjects.get(value);
+      if (wrappedObject != null) {
+        return wrappedObject;
+      }
+
+      final Class<?> theClass = value.getClass();
+      final Object newObject;
+
+      if (type.isInterface() && type.isInstance(value) && this.modelFilter.classShouldBeFiltered(theClass)) {
+        newObject = Proxy.newProxyInstance(type.getClassLoader(),
+                                           new Class<?>[] { type },
+                                           new ProxyHandler(this, value, this.modelFilter.planFor(theClass)));
+      } else {
+        // values that can not be proxied are filtered as usual (i.e., cloned if required)
+        newObject = this.modelFilter.applyTo(value);
+        if (newObject == value) {
+          return value;
+        }
+      }
+
+      final Object existingObject = this.wrappedObjects.putIfAbsent(value, newObject);
+      return existingObject != null ? existingObject : newObject;
+    }
+
+  }
+
+}
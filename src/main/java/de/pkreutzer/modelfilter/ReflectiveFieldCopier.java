@@ -0,0 +1,163 @@
+package de.pkreutzer.modelfilter;
+
+import java.util.BitSet;
+
+import java.lang.reflect.Field;
+
+final class ReflectiveFieldCopier extends FieldCopier {
+
+  // kinds of fields, primitive values are copied by the typed accessors (no boxing)
+  private static final int REFERENCE = 0;
+  private static final int BOOLEAN = 1;
+  private static final int CHAR = 2;
+  private static final int BYTE = 3;
+  private static final int SHORT = 4;
+  private static final int INT = 5;
+  private static final int LONG = 6;
+  private static final int FLOAT = 7;
+  private static final int DOUBLE = 8;
+  // reference that can not reach filtered classes
+  private static final int SHARED_REFERENCE = 9;
+
+  private final Instantiator instantiator;
+  private final Field[] includedFields;
+  private final int[] includedKinds;
+  private final Field[] excludedFields;
+  private final int[] excludedKinds;
+
+  public ReflectiveFieldCopier(final FilterPlan plan, final BitSet sharedFields) {
+    super(plan.getIncludedFields().length);
+    this.instantiator = Instantiator.of(plan.getTheClass());
+    this.includedFields = plan.getIncludedFields();
+    this.includedKinds = kindsOf(this.includedFields);
+    for (int index = sharedFields.nextSetBit(0); index >= 0; index = sharedFields.nextSetBit(index + 1)) {
+      this.includedKinds[index] = SHARED_REFERENCE;
+    }
+    this.excludedFields = plan.getExcludedFields();
+    this.excludedKinds = kindsOf(this.excludedFields);
+  }
+
+  private static final int[] kindsOf(final Field[] fields) {
+    final int[] kinds = new int[fields.length];
+
+    for (int index = 0; index < fields.length; ++index) {
+      final Class<?> type = fields[index].getType();
+      if (!type.isPrimitive()) {
+        kinds[index] = REFERENCE;
+      } else if (type.equals(boolean.class)) {
+        kinds[index] = BOOLEAN;
+      } else if (type.equals(char.class)) {
+        kinds[index] = CHAR;
+      } else if (type.equals(byte.class)) {
+        kinds[index] = BYTE;
+      } else if (type.equals(short.class)) {
+        kinds[index] = SHORT;
+      } else if (type.equals(int.class)) {
+        kinds[index] = INT;
+      } else if (type.equals(long.class)) {
+        kinds[index] = LONG;
+      } else if (type.equals(float.class)) {
+        kinds[index] = FLOAT;
+      } else {
+        kinds[index] = DOUBLE;
+      }
+    }
+
+    return kinds;
+  }
+
+  @Override
+  public final Object newInstance() throws Throwable {
+    return this.instantiator.newInstance();
+  }
+
+  @Override
+  public final void copy(final Traversal traversal, final Object from, final Object to)
+      throws IllegalAccessException {
+    copyIncludedFields(traversal, from, to);
+
+    // all other fields: set to default value
+    for (int index = 0; index < this.excludedFields.length; ++index) {
+      reset(index, to);
+    }
+  }
+
+  private final void copyIncludedFields(final Traversal traversal,
+                                        final Object from, final Object to) throws IllegalAccessException {
+    final Field[] fields = this.includedFields;
+    final int[] kinds = this.includedKinds;
+
+    // fields matching the views: apply the filter to the object the field is referring to
+    for (int index = 0; index < fields.length; ++index) {
+      final Field field = fields[index];
+
+      switch (kinds[index]) {
+        case REFERENCE:
+          field.set(to, traversal.filterValue(field.get(from)));
+          break;
+        case SHARED_REFERENCE:
+          field.set(to, traversal.copyShallow(field.get(from)));
+          break;
+        case BOOLEAN:
+          field.setBoolean(to, field.getBoolean(from));
+          break;
+        case CHAR:
+          field.setChar(to, field.getChar(from));
+          break;
+        case BYTE:
+          field.setByte(to, field.getByte(from));
+          break;
+        case SHORT:
+          field.setShort(to, field.getShort(from));
+          break;
+        case INT:
+          field.setInt(to, field.getInt(from));
+          break;
+        case LONG:
+          field.setLong(to, field.getLong(from));
+          break;
+        case FLOAT:
+          field.setFloat(to, field.getFloat(from));
+          break;
+        default:
+          field.setDouble(to, field.getDouble(from));
+          break;
+      }
+    }
+  }
+
+  private final void reset(final int index, final Object to) throws IllegalAccessException {
+    final Field field = this.excludedFields[index];
+
+    switch (this.excludedKinds[index]) {
+      case REFERENCE:
+        field.set(to, null);
+        break;
+      case BOOLEAN:
+        field.setBoolean(to, false);
+        break;
+      case CHAR:
+        field.setChar(to, (char)(0));
+        break;
+      case BYTE:
+        field.setByte(to, (byte)(0));
+        break;
+      case SHORT:
+        field.setShort(to, (short)(0));
+        break;
+      case INT:
+        field.setInt(to, 0);
+        break;
+      case LONG:
+        field.setLong(to, 0L);
+        break;
+      case FLOAT:
+        field.setFloat(to, 0.f);
+        break;
+      default:
+        field.setDouble(to, 0.);
+        break;
+    }
+  }
+
+}
@@ -0,0 +1,1021 @@
+package de.pkreutzer.modelfilter;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+
+// filters an object graph without recursion: objects are cloned when they are reached, copying their
+// contents is pushed onto an explicit work stack, so the depth of the graph is not limited by the call stack
+final class Traversal implements GeneratedFilter.ValueFilter {
+
+  // kinds of pending work
+  private static final int COPY_FIELDS = 0;      // copier, original, clone
+  private static final int FILL_ARRAY = 1;       // original array, cloned array
+  private static final int FILL_COLLECTION = 2;  // original collection, target collection, collection factory
+  private static final int ADD_ELEMENTS = 3;     // cloned collection or map, filtered elements or entries
+  private static final int FILL_MAP = 4;         // original map, target map (the cloned map or the map it wraps)
+  // filterInto only: contents are copied into objects of the target graph
+  private static final int COPY_FIELDS_INTO = 5;      // copier, original, reused object
+  private static final int FILL_ARRAY_INTO = 6;       // original array, reused array
+  private static final int FILL_COLLECTION_INTO = 7;  // original collection, cleared collection, its former elements
+
+  private static final int OPERANDS = 3;
+  // pending work of flat objects, grows with the graph
+  private static final int INITIAL_WORK = 4;
+
+  private final ModelFilter modelFilter;
+  // shared by the parts of a parallel traversal, created on first use otherwise (see filteredObjects())
+  private ObjectMap filteredObjects;
+
+  // filters multiple roots, see isCompliant
+  private final boolean isBatch;
+
+  // work stack, kinds[i] with operands[OPERANDS * i ...] (created on first push)
+  private int[] kinds;
+  private Object[] operands;
+  private int size;
+
+  // parallel mode only: elements are added to collections once all objects of the graph are complete,
+  // clones shared between threads may still be incomplete when a single thread is done with its part
+  private final boolean isPart;
+  private final List<Object> deferredElements;
+
+  // compliance check of roots, see isCompliant (lazily created, like all state of a traversal, so that roots
+  // that are returned as they are do not allocate anything but the traversal itself)
+  private ArrayDeque<Object> pendingChecks;
+  private IdentityObjectMap checkedObjects;
+
+  // filterInto only: objects of the target graph that are already reused (lazily created)
+  private IdentityObjectMap reusedObjects;
+
+  // statistics reported to the listener of the filter (or as events), null if nothing is reported
+  private Counts counts;
+
+  public Traversal(final ModelFilter modelFilter, final boolean isBatch) {
+    this(modelFilter, null, isBatch, false);
+  }
+
+  private Traversal(final ModelFilter modelFilter, final ObjectMap filteredObjects,
+                    final boolean isBatch, final boolean isPart) {
+    this.modelFilter = modelFilter;
+    this.filteredObjects = filteredObjects;
+    this.isBatch = isBatch;
+    this.kinds = null;
+    this.operands = null;
+    this.size = 0;
+    this.isPart = isPart;
+    this.pendingChecks = null;
+    this.checkedObjects = null;
+    this.reusedObjects = null;
+    this.counts = null;
+    this.deferredElements = modelFilter.getParallelism() != null
+                            ? new ArrayList<Object>()
+                            : null;
+  }
+
+  public final <T> T filter(final T objectToFilter) {
+    return filter(objectToFilter, null);
+  }
+
+  // filters into the graph of target instead of cloning if target is not null, see ModelFilter.filterInto
+  public final <T> T filter(final T objectToFilter, final T target) {
+    final FilterListener listener = this.modelFilter.getListener();
+    final Object event = FilterEvents.beginFilter();
+    if (listener == null && event == null) {
+      return target != null ? filterRootInto(objectToFilter, target) : filterRoot(objectToFilter);
+    }
+
+    if (this.counts == null) {
+      this.counts = new Counts();
+    }
+    final Counts countsBefore = this.counts.copy();
+    final long start = System.nanoTime();
+    final T filteredObject = target != null ? filterRootInto(objectToFilter, target) : filterRoot(objectToFilter);
+    report(listener, event, objectToFilter != null ? objectToFilter.getClass() : null, countsBefore, start);
+
+    return filteredObject;
+  }
+
+  private final <T> T filterRoot(final T objectToFilter) {
+    // roots already reached from other roots of a batch are filtered like any other reference
+    if (this.modelFilter.reusesCompliantObjects() && !isFiltered(objectToFilter) && isCompliant(objectToFilter)) {
+      return objectToFilter;
+    }
+
+    final T filteredObject = filterValue(objectToFilter);
+    finish();
+    return filteredObject;
+  }
+
+  private final <T> T filterRootInto(final T objectToFilter, final T target) {
+    if (!reuse(objectToFilter, target)) {
+      throw new IllegalArgumentException("target can not be reused for " + objectToFilter.getClass().getName());
+    }
+
+    finish();
+    return target;
+  }
+
+  // the identity map of the traversal, created when the first object is recorded
+  private final ObjectMap filteredObjects() {
+    if (this.filteredObjects == null) {
+      this.filteredObjects = this.modelFilter.newObjectMap();
+    }
+
+    return this.filteredObjects;
+  }
+
+  private final boolean isFiltered(final Object object) {
+    return this.filteredObjects != null && object != null && this.filteredObjects.get(object) != null;
+  }
+
+  // registers existing (part of the target graph) as the filtered counterpart of original if both are of the
+  // same class, so that filterValue returns it instead of a clone; its contents are replaced later by pending work
+  @SuppressWarnings("unchecked")
+  private final boolean reuse(final Object original, final Object existing) {
+    if (original == null || existing == null || original == existing || original.getClass() != existing.getClass()
+        || isFiltered(original)) {
+      return false;
+    }
+
+    if (this.reusedObjects == null) {
+      this.reusedObjects = new IdentityObjectMap(16);
+    } else if (this.reusedObjects.get(existing) != null) {
+      // referenced twice by the target graph, e.g., at two indices of an array
+      return false;
+    }
+
+    final Class<?> theClass = original.getClass();
+
+    try {
+      final int kind;
+      Object first = original;
+      Object second = existing;
+      Object third = null;
+
+      if (theClass.isArray()) {
+        // primitive arrays are shared, not copied
+        if (theClass.getComponentType().isPrimitive() || Array.getLength(original) != Array.getLength(existing)) {
+          return false;
+        }
+        kind = FILL_ARRAY_INTO;
+      } else if (original instanceof Collection) {
+        if (original instanceof SortedSet
+            && !Objects.equals(((SortedSet<?>) original).comparator(), ((SortedSet<?>) existing).comparator())) {
+          return false;
+        }
+
+        // the former elements of lists are reused for the elements at the same index
+        final Object[] existingElements = existing instanceof List ? ((List<?>) existing).toArray() : null;
+        if (!clear(existing)) {
+          return false;
+        }
+        kind = FILL_COLLECTION_INTO;
+        third = existingElements;
+      } else if (original instanceof Map) {
+        if (original instanceof SortedMap
+            && !Objects.equals(((SortedMap<?, ?>) original).comparator(), ((SortedMap<?, ?>) existing).comparator())) {
+          return false;
+        }
+
+        // the former values are not reused, as the filtered keys do not have to be equal to the original ones
+        if (!clear(existing)) {
+          return false;
+        }
+        kind = FILL_MAP;
+      } else if (this.modelFilter.classShouldBeFiltered(theClass)) {
+        kind = COPY_FIELDS_INTO;
+        first = this.modelFilter.copierFor(theClass);
+        second = original;
+        third = existing;
+      } else {
+        return false;
+      }
+
+      filteredObjects().putIfAbsent(original, existing);
+      this.reusedObjects.putIfAbsent(existing, existing);
+      push(kind, first, second, third);
+
+      return true;
+    } catch (final IllegalAccessException exception) {
+      throw new CloningFailedException(exception, original);
+    }
+  }
+
+  // false for unmodifiable collections and maps
+  private static final boolean clear(final Object collectionOrMap) {
+    try {
+      if (collectionOrMap instanceof Collection) {
+        ((Collection<?>) collectionOrMap).clear();
+      } else {
+        ((Map<?, ?>) collectionOrMap).clear();
+      }
+      return true;
+    } catch (final UnsupportedOperationException exception) {
+      return false;
+    }
+  }
+
+  // reuses the objects referenced by the included fields of existing for the ones referenced by original
+  private final void reuseFields(final Object original, final Object existing) throws IllegalAccessException {
+    final Field[] includedFields = this.modelFilter.planFor(original.getClass()).getIncludedFields();
+
+    for (final Field field : includedFields) {
+      if (!field.getType().isPrimitive()) {
+        reuse(field.get(original), field.get(existing));
+      }
+    }
+    if (this.counts != null) {
+      this.counts.fieldsCopied += includedFields.length;
+    }
+  }
+
+  private final void reuseElements(final Object[] originalArray, final Object[] existingArray) {
+    for (int index = 0; index < originalArray.length; ++index) {
+      reuse(originalArray[index], existingArray[index]);
+    }
+  }
+
+  private final void reuseElements(final Collection<?> originalCollection, final Object[] existingElements) {
+    int index = 0;
+    for (final Object element : originalCollection) {
+      if (index == existingElements.length) {
+        break;
+      }
+      reuse(element, existingElements[index++]);
+    }
+  }
+
+  // to the listener and/or as event, either may be null
+  private final void report(final FilterListener listener, final Object event, final Class<?> rootClass,
+                            final Counts countsBefore, final long start) {
+    final long nanos = System.nanoTime() - start;
+    final int objectsCloned = this.counts.objectsCloned - countsBefore.objectsCloned;
+    final int fieldsCopied = this.counts.fieldsCopied - countsBefore.fieldsCopied;
+    final int containersCopied = this.counts.containersCopied - countsBefore.containersCopied;
+    final int sharedReferences = this.counts.sharedReferences - countsBefore.sharedReferences;
+
+    if (event != null) {
+      FilterEvents.endFilter(event, rootClass, this.modelFilter.getViewSetName(),
+                             objectsCloned, fieldsCopied, containersCopied, sharedReferences);
+    }
+    if (listener != null) {
+      listener.filtered(new FilterStatistics(rootClass, this.modelFilter.getViews(),
+                                             this.modelFilter.getViewSetName(), objectsCloned, fieldsCopied,
+                                             containersCopied, sharedReferences, nanos));
+    }
+  }
+
+  // true if filtering would not change anything, i.e., all objects of filtered classes reachable through
+  // included fields, arrays and collections already have default values in all their excluded fields; the
+  // objects of compliant roots of a batch are registered as their own filtered counterparts, so that other
+  // roots referencing them share them as well
+  private final boolean isCompliant(final Object root) {
+    if (root == null) {
+      return true;
+    }
+
+    try {
+      for (Object current = root; current != null; current = nextPending()) {
+        if (!isLocallyCompliant(current)) {
+          if (this.pendingChecks != null) {
+            this.pendingChecks.clear();
+          }
+          return false;
+        }
+      }
+
+      if (this.isBatch) {
+        final ObjectMap filteredObjects = filteredObjects();
+        filteredObjects.putIfAbsent(root, root);
+        if (this.checkedObjects != null) {
+          this.checkedObjects.putKeysInto(filteredObjects);
+        }
+      }
+
+      return true;
+    } catch (final IllegalAccessException exception) {
+      throw new CloningFailedException(exception, root);
+    } finally {
+      if (this.checkedObjects != null) {
+        this.checkedObjects.clear();
+      }
+    }
+  }
+
+  private final boolean isLocallyCompliant(final Object object) throws IllegalAccessException {
+    final Class<?> theClass = object.getClass();
+
+    if (theClass.isArray()) {
+      if (!theClass.getComponentType().isPrimitive() && this.modelFilter.arrayMayReachFilteredClass(theClass)) {
+        for (final Object element : (Object[]) object) {
+          checkLater(element);
+        }
+      }
+    } else if (object instanceof Collection) {
+      for (final Object element : (Collection<?>) object) {
+        checkLater(element);
+      }
+    } else if (object instanceof Map) {
+      for (final Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+        checkLater(entry.getKey());
+        checkLater(entry.getValue());
+      }
+    } else if (this.modelFilter.classShouldBeFiltered(theClass)) {
+      final FilterPlan plan = this.modelFilter.planFor(theClass);
+
+      final Field[] excludedFields = plan.getExcludedFields();
+      final Object[] excludedDefaults = plan.getExcludedDefaults();
+      for (int index = 0; index < excludedFields.length; ++index) {
+        final Object value = excludedFields[index].get(object);
+        if (value == null ? excludedDefaults[index] != null : !value.equals(excludedDefaults[index])) {
+          return false;
+        }
+      }
+
+      for (final Field field : plan.getIncludedFields()) {
+        if (!field.getType().isPrimitive()) {
+          checkLater(field.get(object));
+        }
+      }
+    }
+
+    return true;
+  }
+
+  // resets the excluded fields of all objects of filtered classes reachable from root through included fields,
+  // arrays, collections and maps, walking the graph like isCompliant (filteredObjects holds the visited objects)
+  public final <T> T redact(final T root) {
+    if (root == null) {
+      return null;
+    }
+
+    // hash based collections and maps whose elements (keys) may have changed, checked once all are redacted
+    final List<Object> changedContainers = new ArrayList<Object>();
+
+    try {
+      filteredObjects().putIfAbsent(root, root);
+      for (Object current = root; current != null; current = nextPending()) {
+        redactLocally(current, changedContainers);
+      }
+
+      // in reverse order, so that nested containers are rebuilt before the containers holding them are checked
+      for (int index = changedContainers.size() - 1; index >= 0; --index) {
+        final Object container = changedContainers.get(index);
+        if (isStale(container)) {
+          rehash(container);
+        }
+      }
+    } catch (final UnsupportedOperationException exception) {
+      // unmodifiable container whose elements (keys) can not be found anymore
+      throw new CloningFailedException(exception, root);
+    } catch (final IllegalAccessException exception) {
+      if (this.pendingChecks != null) {
+        this.pendingChecks.clear();
+      }
+      throw new CloningFailedException(exception, root);
+    }
+
+    return root;
+  }
+
+  private final void redactLocally(final Object object, final List<Object> changedContainers)
+      throws IllegalAccessException {
+    final Class<?> theClass = object.getClass();
+
+    if (theClass.isArray()) {
+      if (!theClass.getComponentType().isPrimitive() && this.modelFilter.arrayMayReachFilteredClass(theClass)) {
+        for (final Object element : (Object[]) object) {
+          redactLater(element);
+        }
+      }
+    } else if (object instanceof Collection) {
+      boolean isChanged = false;
+      for (final Object element : (Collection<?>) object) {
+        isChanged |= redactLater(element);
+      }
+
+      if (isChanged && this.modelFilter.collectionFactoryFor(theClass).requiresCompleteElements()) {
+        changedContainers.add(object);
+      }
+    } else if (object instanceof Map) {
+      boolean isChanged = false;
+      for (final Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+        isChanged |= redactLater(entry.getKey());
+        redactLater(entry.getValue());
+      }
+
+      if (isChanged && !(object instanceof IdentityHashMap) && !(object instanceof EnumMap)) {
+        changedContainers.add(object);
+      }
+    } else if (this.modelFilter.classShouldBeFiltered(theClass)) {
+      final FilterPlan plan = this.modelFilter.planFor(theClass);
+
+      final Field[] excludedFields = plan.getExcludedFields();
+      final Object[] excludedDefaults = plan.getExcludedDefaults();
+      for (int index = 0; index < excludedFields.length; ++index) {
+        excludedFields[index].set(object, excludedDefaults[index]);
+      }
+
+      for (final Field field : plan.getIncludedFields()) {
+        if (!field.getType().isPrimitive()) {
+          redactLater(field.get(object));
+        }
+      }
+    }
+  }
+
+  // true if the hash code of the value may change, i.e., it is an object of a filtered class or a collection or map
+  // that may contain one (arrays have identity hash codes)
+  private final boolean redactLater(final Object value) {
+    if (value == null) {
+      return false;
+    }
+
+    final Class<?> theClass = value.getClass();
+    final boolean shouldBeFiltered = this.modelFilter.classShouldBeFiltered(theClass);
+    if (!shouldBeFiltered && !theClass.isArray() && !(value instanceof Collection) && !(value instanceof Map)) {
+      return false;
+    }
+
+    if (filteredObjects().putIfAbsent(value, value) == null) {
+      addPending(value);
+    }
+
+    return shouldBeFiltered || !theClass.isArray();
+  }
+
+  // true if an element (key) of the container is not found by its current hash code
+  private static final boolean isStale(final Object container) {
+    if (container instanceof Collection) {
+      final Collection<?> collection = (Collection<?>) container;
+      for (final Object element : collection) {
+        if (!collection.contains(element)) {
+          return true;
+        }
+      }
+    } else {
+      final Map<?, ?> map = (Map<?, ?>) container;
+      for (final Object key : map.keySet()) {
+        if (!map.containsKey(key)) {
+          return true;
+        }
+      }
+    }
+
+    return false;
+  }
+
+  // re-inserts all elements (entries), throws UnsupportedOperationException for unmodifiable containers
+  @SuppressWarnings("unchecked")
+  private static final void rehash(final Object container) {
+    if (container instanceof Collection) {
+      final Collection<Object> collection = (Collection<Object>) container;
+      final Object[] elements = collection.toArray();
+      collection.clear();
+      collection.addAll(Arrays.asList(elements));
+    } else {
+      // keys at even, values at odd indices (entries may be reused by the iterator)
+      final Map<Object, Object> map = (Map<Object, Object>) container;
+      final Object[] entries = new Object[2 * map.size()];
+      int index = 0;
+      for (final Map.Entry<Object, Object> entry : map.entrySet()) {
+        entries[index++] = entry.getKey();
+        entries[index++] = entry.getValue();
+      }
+
+      map.clear();
+      for (index = 0; index < entries.length; index += 2) {
+        map.put(entries[index], entries[index + 1]);
+      }
+    }
+  }
+
+  private final void checkLater(final Object value) {
+    if (value == null) {
+      return;
+    }
+
+    final Class<?> theClass = value.getClass();
+    if (!theClass.isArray() && !(value instanceof Collection) && !(value instanceof Map)
+        && !this.modelFilter.classShouldBeFiltered(theClass)) {
+      // returned as is anyway
+      return;
+    }
+
+    if (this.checkedObjects == null) {
+      this.checkedObjects = new IdentityObjectMap(16);
+    }
+
+    if (this.checkedObjects.putIfAbsent(value, value) == null) {
+      addPending(value);
+    }
+  }
+
+  private final void addPending(final Object value) {
+    if (this.pendingChecks == null) {
+      this.pendingChecks = new ArrayDeque<Object>();
+    }
+
+    this.pendingChecks.add(value);
+  }
+
+  // null if there are no more objects to check (or redact)
+  private final Object nextPending() {
+    return this.pendingChecks != null ? this.pendingChecks.poll() : null;
+  }
+
+  // filters the elements as one batch, i.e., objects referenced by multiple elements are only cloned once
+  public final void filterAll(final Object[] elements, final Object[] filteredElements) {
+    if (isParallel(elements.length)) {
+      final FilterListener listener = this.modelFilter.getListener();
+      final Object event = FilterEvents.beginFilter();
+      final boolean isReported = listener != null || event != null;
+      if (isReported && this.counts == null) {
+        this.counts = new Counts();
+      }
+      final Counts countsBefore = isReported ? this.counts.copy() : null;
+      final long start = isReported ? System.nanoTime() : 0L;
+
+      filterInParallel(elements, filteredElements);
+      finish();
+
+      if (isReported) {
+        // the elements are not filtered one after another, so the batch is reported as a whole
+        report(listener, event, Object[].class, countsBefore, start);
+      }
+      return;
+    }
+
+    for (int index = 0; index < elements.length; ++index) {
+      filteredElements[index] = filter(elements[index]);
+    }
+  }
+
+  // processes the pending work
+  @SuppressWarnings("unchecked")
+  public final void finish() {
+    while (this.size > 0) {
+      final int top = --this.size;
+      final int kind = this.kinds[top];
+      final int offset = OPERANDS * top;
+      final Object first = this.operands[offset];
+      final Object second = this.operands[offset + 1];
+      final Object third = this.operands[offset + 2];
+      this.operands[offset] = this.operands[offset + 1] = this.operands[offset + 2] = null;
+
+      try {
+        switch (kind) {
+          case COPY_FIELDS:
+            ((FieldCopier) first).copy(this, second, third);
+            break;
+          case FILL_ARRAY:
+            fillArray((Object[]) first, (Object[]) second);
+            break;
+          case FILL_COLLECTION:
+            fillCollection((Collection<?>) first, (Collection<Object>) second, (CollectionFactory) third);
+            break;
+          case FILL_MAP:
+            fillMap((Map<?, ?>) first, second);
+            break;
+          case COPY_FIELDS_INTO:
+            reuseFields(second, third);
+            ((FieldCopier) first).copy(this, second, third);
+            break;
+          case FILL_ARRAY_INTO:
+            reuseElements((Object[]) first, (Object[]) second);
+            fillArray((Object[]) first, (Object[]) second);
+            break;
+          case FILL_COLLECTION_INTO:
+            if (third != null) {
+              reuseElements((Collection<?>) first, (Object[]) third);
+            }
+            fillCollection((Collection<?>) first, (Collection<Object>) second,
+                           this.modelFilter.collectionFactoryFor(first.getClass()));
+            break;
+          case ADD_ELEMENTS:
+            if (this.deferredElements != null) {
+              this.deferredElements.add(first);
+              this.deferredElements.add(second);
+            } else {
+              addElements(first, (Object[]) second);
+            }
+            break;
+          default:
+            throw new IllegalStateException("unknown kind of work: " + kind);
+        }
+      } catch (final CloningFailedException exception) {
+        throw exception;
+      } catch (final Throwable throwable) {
+        // unable to clone object
+        throw new CloningFailedException(throwable, kind == ADD_ELEMENTS ? first : second);
+      }
+    }
+
+    if (this.deferredElements != null && !this.isPart) {
+      addDeferredElements();
+    }
+  }
+
+  private final void addDeferredElements() {
+    for (int index = 0; index < this.deferredElements.size(); index += 2) {
+      final Object clonedCollection = this.deferredElements.get(index);
+      try {
+        addElements(clonedCollection, (Object[]) this.deferredElements.get(index + 1));
+      } catch (final Throwable throwable) {
+        throw new CloningFailedException(throwable, clonedCollection);
+      }
+    }
+
+    this.deferredElements.clear();
+  }
+
+  // returns the filtered counterpart of a value, copying its contents may still be pending
+  @Override
+  @SuppressWarnings("unchecked")
+  public final <V> V filterValue(final V value) {
+    if (value == null) {
+      return null;
+    }
+
+    final Object filteredObject = this.filteredObjects != null ? this.filteredObjects.get(value) : null;
+    if (filteredObject != null) {
+      if (this.counts != null) {
+        ++this.counts.sharedReferences;
+      }
+      return (V) filteredObject;
+    }
+
+    final Class<?> theClass = value.getClass();
+
+    try {
+      if (theClass.isArray()) {
+        // primitive arrays do not have to be filtered
+        if (theClass.getComponentType().isPrimitive()) {
+          return value;
+        }
+        if (!this.modelFilter.arrayMayReachFilteredClass(theClass)) {
+          return copyShallow(value);
+        }
+
+        final Object[] originalArray = (Object[]) value;
+        final Object[] clonedArray =
+                (Object[]) Array.newInstance(theClass.getComponentType(), originalArray.length);
+
+        // save cloned array to map so that we can re-use it in case of cycles
+        final Object existingArray = filteredObjects().putIfAbsent(originalArray, clonedArray);
+        if (existingArray != null) {
+          // cloned by another thread in the meantime
+          return (V) existingArray;
+        }
+        if (this.counts != null) {
+          ++this.counts.containersCopied;
+        }
+        push(FILL_ARRAY, originalArray, clonedArray, null);
+
+        return (V) clonedArray;
+      } else if (value instanceof Collection) {
+        final Collection<?> originalCollection = (Collection<?>) value;
+        final CollectionFactory factory = this.modelFilter.collectionFactoryFor(theClass);
+        final Collection<Object> targetCollection = factory.newTarget(originalCollection, originalCollection.size());
+        final Object clonedCollection = factory.wrap(targetCollection);
+
+        // save cloned object to map so that we can re-use it in case of cycles
+        final Object existingCollection = filteredObjects().putIfAbsent(value, clonedCollection);
+        if (existingCollection != null) {
+          return (V) existingCollection;
+        }
+        if (this.counts != null) {
+          ++this.counts.containersCopied;
+        }
+        push(FILL_COLLECTION, value, targetCollection, factory);
+
+        return (V) clonedCollection;
+      } else if (value instanceof Map) {
+        final Map<?, ?> originalMap = (Map<?, ?>) value;
+        final Instantiator factory = this.modelFilter.factoryFor(theClass);
+        final Map<Object, Object> targetMap = factory != null
+                                              ? (Map<Object, Object>) factory.newInstance()
+                                              : CollectionFactories.newMap(originalMap);
+        final Object clonedMap = factory != null ? targetMap : CollectionFactories.wrapMap(originalMap, targetMap);
+
+        // save cloned object to map so that we can re-use it in case of cycles
+        final Object existingMap = filteredObjects().putIfAbsent(value, clonedMap);
+        if (existingMap != null) {
+          return (V) existingMap;
+        }
+        if (this.counts != null) {
+          ++this.counts.containersCopied;
+        }
+        push(FILL_MAP, value, targetMap, null);
+
+        return (V) clonedMap;
+      } else {
+        final ModelFilter.ClassMetadata metadata = this.modelFilter.metadataOf(theClass);
+        if (!metadata.shouldBeFiltered()) {
+          return value;
+        }
+
+        // create a clone (roots that are already filtered correctly are returned by filter)
+        final FieldCopier copier = this.modelFilter.copierFor(metadata, theClass);
+        final Instantiator factory = metadata.getFactory();
+        final Object clone = factory != null ? factory.newInstance() : copier.newInstance();
+
+        // save cloned object to map so that we can re-use it in case of cycles
+        final Object existingClone = filteredObjects().putIfAbsent(value, clone);
+        if (existingClone != null) {
+          return (V) existingClone;
+        }
+        if (this.counts != null) {
+          ++this.counts.objectsCloned;
+          this.counts.fieldsCopied += copier.getIncludedFieldCount();
+        }
+        // excluded fields are always reset, field initializers (or factories) may have set them
+        push(COPY_FIELDS, copier, value, clone);
+
+        return (V) clone;
+      }
+    } catch (final Throwable throwable) {
+      // unable to clone object
+      throw new CloningFailedException(throwable, value);
+    }
+  }
+
+  // copy of a value that can not reach filtered classes: arrays, collections and maps are copied without
+  // filtering (or copying) their elements, other objects are returned as is
+  @Override
+  @SuppressWarnings("unchecked")
+  public final <V> V copyShallow(final V value) {
+    if (value == null) {
+      return null;
+    }
+
+    final Class<?> theClass = value.getClass();
+    if (theClass.isArray() ? theClass.getComponentType().isPrimitive()
+                           : !(value instanceof Collection) && !(value instanceof Map)) {
+      return value;
+    }
+
+    final Object existingCopy = this.filteredObjects != null ? this.filteredObjects.get(value) : null;
+    if (existingCopy != null) {
+      if (this.counts != null) {
+        ++this.counts.sharedReferences;
+      }
+      return (V) existingCopy;
+    }
+
+    try {
+      final Object copy;
+
+      if (theClass.isArray()) {
+        copy = ((Object[]) value).clone();
+      } else if (value instanceof Collection) {
+        final Collection<?> originalCollection = (Collection<?>) value;
+        final CollectionFactory factory = this.modelFilter.collectionFactoryFor(theClass);
+        final Collection<Object> targetCollection = factory.newTarget(originalCollection, originalCollection.size());
+        targetCollection.addAll(originalCollection);
+        copy = factory.wrap(targetCollection);
+      } else {
+        final Map<?, ?> originalMap = (Map<?, ?>) value;
+        final Instantiator factory = this.modelFilter.factoryFor(theClass);
+        final Map<Object, Object> targetMap = factory != null
+                                              ? (Map<Object, Object>) factory.newInstance()
+                                              : CollectionFactories.newMap(originalMap);
+        targetMap.putAll(originalMap);
+        copy = factory != null ? targetMap : CollectionFactories.wrapMap(originalMap, targetMap);
+      }
+
+      final Object existingValue = filteredObjects().putIfAbsent(value, copy);
+      if (existingValue != null) {
+        return (V) existingValue;
+      }
+
+      if (this.counts != null) {
+        ++this.counts.containersCopied;
+      }
+      return (V) copy;
+    } catch (final Throwable throwable) {
+      throw new CloningFailedException(throwable, value);
+    }
+  }
+
+  private final void fillArray(final Object[] originalArray, final Object[] clonedArray) {
+    if (isParallel(originalArray.length)) {
+      filterInParallel(originalArray, clonedArray);
+      return;
+    }
+
+    for (int index = 0; index < originalArray.length; ++index) {
+      clonedArray[index] = filterValue(originalArray[index]);
+    }
+  }
+
+  private final void fillCollection(final Collection<?> originalCollection, final Collection<Object> targetCollection,
+                                    final CollectionFactory factory) {
+    final int size = originalCollection.size();
+
+    if (!factory.requiresCompleteElements() && !isParallel(size)) {
+      // e.g., lists: add the elements directly, without an intermediate array
+      for (final Object element : originalCollection) {
+        targetCollection.add(filterValue(element));
+      }
+      return;
+    }
+
+    final Object[] filteredElements = new Object[size];
+
+    // elements are added after their contents have been copied (pushed first -> processed last),
+    // otherwise hash based collections would see incomplete elements
+    push(ADD_ELEMENTS, targetCollection, filteredElements, null);
+
+    if (isParallel(filteredElements.length)) {
+      filterInParallel(originalCollection.toArray(), filteredElements);
+      return;
+    }
+
+    int index = 0;
+    for (final Object element : originalCollection) {
+      filteredElements[index++] = filterValue(element);
+    }
+  }
+
+  private final void fillMap(final Map<?, ?> originalMap, final Object targetMap) {
+    // keys at even, values at odd indices
+    final Object[] filteredEntries = new Object[2 * originalMap.size()];
+
+    // entries are put after their contents have been copied, see fillCollection
+    push(ADD_ELEMENTS, targetMap, filteredEntries, null);
+
+    if (isParallel(originalMap.size())) {
+      final Object[] entries = new Object[filteredEntries.length];
+      int index = 0;
+      for (final Map.Entry<?, ?> entry : originalMap.entrySet()) {
+        entries[index++] = entry.getKey();
+        entries[index++] = entry.getValue();
+      }
+
+      filterInParallel(entries, filteredEntries);
+      return;
+    }
+
+    int index = 0;
+    for (final Map.Entry<?, ?> entry : originalMap.entrySet()) {
+      filteredEntries[index++] = filterValue(entry.getKey());
+      filteredEntries[index++] = filterValue(entry.getValue());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private final void addElements(final Object clonedCollection, final Object[] filteredElements) {
+    if (!(clonedCollection instanceof Collection)) {
+      final Map<Object, Object> map = (Map<Object, Object>) clonedCollection;
+      for (int index = 0; index < filteredElements.length; index += 2) {
+        map.put(filteredElements[index], filteredElements[index + 1]);
+      }
+      return;
+    }
+
+    final Collection<Object> collection = (Collection<Object>) clonedCollection;
+    for (final Object element : filteredElements) {
+      collection.add(element);
+    }
+  }
+
+  private final boolean isParallel(final int length) {
+    final Parallelism parallelism = this.modelFilter.getParallelism();
+    return parallelism != null && length >= parallelism.getThreshold();
+  }
+
+  private final void filterInParallel(final Object[] elements, final Object[] filteredElements) {
+    final PartTask task = new PartTask(this.modelFilter, filteredObjects(), this.counts != null,
+                                       elements, filteredElements, 0, elements.length);
+
+    // run in the configured pool, even if the filter is called by a task of another pool
+    final ForkJoinPool pool = this.modelFilter.getParallelism().getPool();
+    if (ForkJoinTask.getPool() == pool) {
+      task.invoke();
+    } else {
+      pool.invoke(task);
+    }
+
+    // keep the order in which the elements would have been added sequentially
+    this.deferredElements.addAll(task.deferredElements);
+    if (this.counts != null) {
+      this.counts.add(task.counts);
+    }
+  }
+
+  private final void push(final int kind, final Object first, final Object second, final Object third) {
+    if (this.kinds == null) {
+      this.kinds = new int[INITIAL_WORK];
+      this.operands = new Object[OPERANDS * INITIAL_WORK];
+    } else if (this.size == this.kinds.length) {
+      this.kinds = Arrays.copyOf(this.kinds, 2 * this.size);
+      this.operands = Arrays.copyOf(this.operands, OPERANDS * 2 * this.size);
+    }
+
+    final int offset = OPERANDS * this.size;
+    this.kinds[this.size] = kind;
+    this.operands[offset] = first;
+    this.operands[offset + 1] = second;
+    this.operands[offset + 2] = third;
+    ++this.size;
+  }
+
+  // filters elements[from, to) with traversals of its own, splitting ranges above the threshold
+  private static final class PartTask extends RecursiveAction {
+
+    private final ModelFilter modelFilter;
+    private final ObjectMap filteredObjects;
+    private final boolean isCounted;
+    private final Object[] elements;
+    private final Object[] filteredElements;
+    private final int from;
+    private final int to;
+
+    private List<Object> deferredElements;
+    private Counts counts;
+
+    private PartTask(final ModelFilter modelFilter, final ObjectMap filteredObjects, final boolean isCounted,
+                     final Object[] elements, final Object[] filteredElements, final int from, final int to) {
+      this.modelFilter = modelFilter;
+      this.filteredObjects = filteredObjects;
+      this.isCounted = isCounted;
+      this.elements = elements;
+      this.filteredElements = filteredElements;
+      this.from = from;
+      this.to = to;
+      this.deferredElements = null;
+      this.counts = null;
+    }
+
+    @Override
+    protected final void compute() {
+      if (this.to - this.from > this.modelFilter.getParallelism().getThreshold()) {
+        final int middle = (this.from + this.to) >>> 1;
+        final PartTask left = new PartTask(this.modelFilter, this.filteredObjects, this.isCounted,
+                                           this.elements, this.filteredElements, this.from, middle);
+        final PartTask right = new PartTask(this.modelFilter, this.filteredObjects, this.isCounted,
+                                            this.elements, this.filteredElements, middle, this.to);
+        invokeAll(left, right);
+
+        this.deferredElements = left.deferredElements;
+        this.deferredElements.addAll(right.deferredElements);
+        this.counts = left.counts;
+        if (this.counts != null) {
+          this.counts.add(right.counts);
+        }
+      } else {
+        final Traversal traversal = new Traversal(this.modelFilter, this.filteredObjects, false, true);
+        if (this.isCounted) {
+          traversal.counts = new Counts();
+        }
+        for (int index = this.from; index < this.to; ++index) {
+          this.filteredElements[index] = traversal.filterValue(this.elements[index]);
+        }
+        traversal.finish();
+
+        this.deferredElements = traversal.deferredElements;
+        this.counts = traversal.counts;
+      }
+    }
+
+  }
+
+  private static final class Counts {
+
+    private int objectsCloned;
+    private int fieldsCopied;
+    private int containersCopied;
+    private int sharedReferences;
+
+    private final Counts copy() {
+      final Counts copy = new Counts();
+      copy.add(this);
+      return copy;
+    }
+
+    private final void add(final Counts counts) {
+      this.objectsCloned += counts.objectsCloned;
+      this.fieldsCopied += counts.fieldsCopied;
+      this.containersCopied += counts.containersCopied;
+      this.sharedReferences += counts.sharedReferences;
+    }
+
+  }
+
+}
@@ -0,0 +1,170 @@
+package de.pkreutzer.modelfilter;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Set;
+import java.util.HashSet;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+
+// set of requested views compiled into a bitset: every view has an index, the bitset of a view set contains the
+// indices of all requested views and their super-views, i.e., all annotated views matching the requested views;
+// view sets are equal if their bits are, so equivalent view sets share cached plans
+final class ViewSet {
+
+  // indices of the views alive, the index of a view is reused once the view has been garbage collected (a view
+  // set or plan can not outlive its views with a cached index: they are referenced by the filter or the annotations)
+  private static final BitSet usedIndices = new BitSet();
+  private static final ReferenceQueue<Class<?>> collectedViews = new ReferenceQueue<Class<?>>();
+  // keeps the references reachable until they are enqueued
+  private static final Set<ViewReference> viewReferences = new HashSet<ViewReference>();
+
+  // index and closure over the super-views of each view, computed once per view
+  private static final ClassValue<CompiledView> compiledViews = new ClassValue<CompiledView>() {
+    @Override
+    protected final CompiledView computeValue(final Class<?> view) {
+      return new CompiledView(view);
+    }
+  };
+
+  private final long[] bits;
+  private final int hash;
+
+  private ViewSet(final long[] bits) {
+    this.bits = bits;
+    this.hash = Arrays.hashCode(bits);
+  }
+
+  public static final ViewSet of(final Set<Class<? extends View>> views) {
+    long[] bits = new long[0];
+    for (final Class<? extends View> view : views) {
+      bits = or(bits, compiledViews.get(view).closure);
+    }
+
+    return new ViewSet(bits);
+  }
+
+  public static final ViewSet of(final Class<? extends View>[] views) {
+    long[] bits = new long[0];
+    for (final Class<? extends View> view : views) {
+      bits = or(bits, compiledViews.get(view).closure);
+    }
+
+    return new ViewSet(bits);
+  }
+
+  // true if annotatedView is one of the requested views or one of their super-views
+  public final boolean matches(final Class<? extends View> annotatedView) {
+    return contains(this.bits, compiledViews.get(annotatedView).index);
+  }
+
+  public final boolean includes(final Field field) {
+    final InView annotation = field.getAnnotation(InView.class);
+
+    return annotation != null && matches(annotation.value());
+  }
+
+  // like of(views).matches(annotatedView), without compiling a view set
+  public static final boolean matches(final Class<? extends View> annotatedView,
+                                      final Set<Class<? extends View>> views) {
+    final int index = compiledViews.get(annotatedView).index;
+    for (final Class<? extends View> view : views) {
+      if (contains(compiledViews.get(view).closure, index)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  // like of(views).includes(field), without compiling a view set
+  public static final boolean includes(final Field field, final Set<Class<? extends View>> views) {
+    final InView annotation = field.getAnnotation(InView.class);
+
+    return annotation != null && matches(annotation.value(), views);
+  }
+
+  private static final boolean contains(final long[] bits, final int index) {
+    final int word = index >>> 6;
+
+    return word < bits.length && (bits[word] & (1L << index)) != 0;
+  }
+
+  // lowest index not used by a view alive
+  private static final int allocateIndex(final Class<?> view) {
+    synchronized (usedIndices) {
+      for (Reference<? extends Class<?>> reference = collectedViews.poll();
+           reference != null;
+           reference = collectedViews.poll()) {
+        viewReferences.remove(reference);
+        usedIndices.clear(((ViewReference) reference).index);
+      }
+
+      final int index = usedIndices.nextClearBit(0);
+      usedIndices.set(index);
+      viewReferences.add(new ViewReference(view, index));
+
+      return index;
+    }
+  }
+
+  private static final long[] or(final long[] bits, final long[] otherBits) {
+    final long[] result = Arrays.copyOf(bits, Math.max(bits.length, otherBits.length));
+    for (int word = 0; word < otherBits.length; ++word) {
+      result[word] |= otherBits[word];
+    }
+    return result;
+  }
+
+  @Override
+  public final boolean equals(final Object other) {
+    return other instanceof ViewSet && Arrays.equals(this.bits, ((ViewSet) other).bits);
+  }
+
+  @Override
+  public final int hashCode() {
+    return this.hash;
+  }
+
+  private static final class CompiledView {
+
+    private final int index;
+    // bits of the view itself and all its super-views (no trailing zero words)
+    private final long[] closure;
+
+    private CompiledView(final Class<?> view) {
+      this.index = allocateIndex(view);
+
+      long[] closure = new long[(this.index >>> 6) + 1];
+      closure[this.index >>> 6] |= 1L << this.index;
+
+      final Class<?> superclass = view.getSuperclass();
+      if (superclass != null && View.class.isAssignableFrom(superclass)) {
+        closure = or(closure, compiledViews.get(superclass).closure);
+      }
+      for (final Class<?> superInterface : view.getInterfaces()) {
+        if (View.class.isAssignableFrom(superInterface)) {
+          closure = or(closure, compiledViews.get(superInterface).closure);
+        }
+      }
+
+      this.closure = closure;
+    }
+
+  }
+
+  private static final class ViewReference extends WeakReference<Class<?>> {
+
+    private final int index;
+
+    private ViewReference(final Class<?> view, final int index) {
+      super(view, collectedViews);
+      this.index = index;
+    }
+
+  }
+
+}
@@ -18,9 +18,17 @@ public final class ModelFilterExample {
                                     useView(UserView.Credentials.class).
                                     applyTo(user);
 
+    // reusable filter (immutable, can be shared between threads)
+    final ModelFilter emailFilter = ModelFilter.buildFilter().
+                                      forClass(User.class).
+                                      useView(UserView.EMail.class).
+                                      build();
+    final User userEMail = emailFilter.applyTo(user);
+
     System.out.println("original:    " + user);
     System.out.println("public:      " + userPublic);
     System.out.println("credentials: " + userCredentials);
+    System.out.println("email:       " + userEMail);
   }
 
 }
@@ -0,0 +1,295 @@
+package de.pkreutzer.modelfilter.processor;
+
+import de.pkreutzer.modelfilter.InView;
+
+import java.util.Set;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+// generates a <Class>ModelFilter implementing de.pkreutzer.modelfilter.GeneratedFilter for every
+// concrete class with @InView fields (including inherited ones) whose fields are accessible from its package
+public final class ModelFilterProcessor extends AbstractProcessor {
+
+  private static final String SUFFIX = "ModelFilter";
+
+  private final Set<String> generatedClasses = new HashSet<String>();
+
+  @Override
+  public final Set<String> getSupportedAnnotationTypes() {
+    // subclasses of annotated classes have to be found as well
+    return Collections.singleton("*");
+  }
+
+  @Override
+  public final SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public final boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+    for (final TypeElement typeElement : ElementFilter.typesIn(roundEnv.getRootElements())) {
+      processType(typeElement);
+    }
+
+    // do not claim any annotations
+    return false;
+  }
+
+  private final void processType(final TypeElement typeElement) {
+    for (final TypeElement nestedType : ElementFilter.typesIn(typeElement.getEnclosedElements())) {
+      processType(nestedType);
+    }
+
+    if (typeElement.getKind() != ElementKind.CLASS) {
+      return;
+    }
+
+    final List<VariableElement> fields = collectFields(typeElement);
+    if (!hasInViewField(fields)) {
+      return;
+    }
+
+    final String problem = findProblem(typeElement, fields);
+    if (problem != null) {
+      // only report classes that declare @InView fields themselves
+      if (hasInViewField(ElementFilter.fieldsIn(typeElement.getEnclosedElements()))) {
+        this.processingEnv.getMessager().printMessage(
+                Diagnostic.Kind.NOTE,
+                "no filter generated, falling back to reflection: " + problem,
+                typeElement);
+      }
+      return;
+    }
+
+    final String generatedClass = this.processingEnv.getElementUtils().getBinaryName(typeElement).toString();
+    if (this.generatedClasses.add(generatedClass)) {
+      try {
+        writeFilter(typeElement, fields);
+      } catch (final IOException exception) {
+        this.processingEnv.getMessager().printMessage(
+                Diagnostic.Kind.ERROR,
+                "unable to write filter: " + exception.getMessage(),
+                typeElement);
+      }
+    }
+  }
+
+  // all instance fields of the class and its superclasses (except java.lang.Object)
+  private final List<VariableElement> collectFields(final TypeElement typeElement) {
+    final List<VariableElement> fields = new ArrayList<VariableElement>();
+
+    for (TypeElement currentType = typeElement;
+         currentType != null && !currentType.getQualifiedName().contentEquals("java.lang.Object");
+         currentType = superclassOf(currentType)) {
+      for (final VariableElement field : ElementFilter.fieldsIn(currentType.getEnclosedElements())) {
+        if (!field.getModifiers().contains(Modifier.STATIC)) {
+          fields.add(field);
+        }
+      }
+    }
+
+    return fields;
+  }
+
+  private static final TypeElement superclassOf(final TypeElement typeElement) {
+    final TypeMirror superclass = typeElement.getSuperclass();
+
+    if (superclass.getKind() != TypeKind.DECLARED) {
+      return null;
+    }
+
+    return (TypeElement) ((DeclaredType) superclass).asElement();
+  }
+
+  private static final boolean hasInViewField(final List<VariableElement> fields) {
+    for (final VariableElement field : fields) {
+      if (field.getAnnotation(InView.class) != null) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  // returns null if a filter can be generated
+  private final String findProblem(final TypeElement typeElement, final List<VariableElement> fields) {
+    if (typeElement.getModifiers().contains(Modifier.ABSTRACT)) {
+      return "class is abstract";
+    }
+
+    for (Element element = typeElement;
+         element.getKind() != ElementKind.PACKAGE;
+         element = element.getEnclosingElement()) {
+      if (element.getModifiers().contains(Modifier.PRIVATE)) {
+        return "class is not accessible";
+      }
+    }
+
+    if (typeElement.getNestingKind().isNested() && !typeElement.getModifiers().contains(Modifier.STATIC)) {
+      return "class is not static";
+    }
+
+    if (!hasDefaultConstructor(typeElement)) {
+      return "class does not have an accessible default constructor";
+    }
+
+    final PackageElement packageElement = packageOf(typeElement);
+    for (final VariableElement field : fields) {
+      final TypeElement declaringType = (TypeElement) field.getEnclosingElement();
+      final Set<Modifier> modifiers = field.getModifiers();
+
+      final boolean samePackage = packageOf(declaringType).equals(packageElement);
+      if (modifiers.contains(Modifier.PRIVATE)
+          || (!samePackage && !modifiers.contains(Modifier.PUBLIC))
+          || (!samePackage && !declaringType.getModifiers().contains(Modifier.PUBLIC))) {
+        return "field " + declaringType.getSimpleName() + "." + field.getSimpleName() + " is not accessible";
+      }
+
+      if (modifiers.contains(Modifier.FINAL)) {
+        return "field " + declaringType.getSimpleName() + "." + field.getSimpleName() + " is final";
+      }
+    }
+
+    return null;
+  }
+
+  private static final boolean hasDefaultConstructor(final TypeElement typeElement) {
+    for (final ExecutableElement constructor : ElementFilter.constructorsIn(typeElement.getEnclosedElements())) {
+      if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private final PackageElement packageOf(final Element element) {
+    return this.processingEnv.getElementUtils().getPackageOf(element);
+  }
+
+  private final void writeFilter(final TypeElement typeElement, final List<VariableElement> fields)
+      throws IOException {
+    final String packageName = packageOf(typeElement).getQualifiedName().toString();
+    final String binaryName = this.processingEnv.getElementUtils().getBinaryName(typeElement).toString();
+    final String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+                                .replace('$', '_') + SUFFIX;
+    final String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+
+    // raw type, generic classes are filtered like any other class
+    final String className = typeElement.getQualifiedName().toString();
+
+    final JavaFileObject sourceFile =
+            this.processingEnv.getFiler().createSourceFile(qualifiedName, typeElement);
+
+    try (final PrintWriter writer = new PrintWriter(sourceFile.openWriter())) {
+      if (!packageName.isEmpty()) {
+        writer.println("package " + packageName + ";");
+        writer.println();
+      }
+
+      writer.println("// generated by " + ModelFilterProcessor.class.getName() + ", do not edit");
+      writer.println("@SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+      writer.println("public final class " + simpleName
+                     + " implements de.pkreutzer.modelfilter.GeneratedFilter<" + className + "> {");
+      writer.println();
+
+      writer.println("  private static final String[] FIELDS = {");
+      for (final VariableElement field : fields) {
+        final TypeElement declaringType = (TypeElement) field.getEnclosingElement();
+        writer.println("    \"" + this.processingEnv.getElementUtils().getBinaryName(declaringType)
+                       + "#" + field.getSimpleName() + "\",");
+      }
+      writer.println("  };");
+      writer.println();
+
+      writer.println("  @Override");
+      writer.println("  public final String[] getFields() {");
+      writer.println("    return FIELDS.clone();");
+      writer.println("  }");
+      writer.println();
+
+      writer.println("  @Override");
+      writer.println("  public final " + className + " newInstance() {");
+      writer.println("    return new " + className + "();");
+      writer.println("  }");
+      writer.println();
+
+      writer.println("  @Override");
+      writer.println("  public final void copy(final ValueFilter valueFilter, final " + className + " from, final "
+                     + className + " to, final boolean[] included, final boolean[] shared) {");
+      for (int index = 0; index < fields.size(); ++index) {
+        final VariableElement field = fields.get(index);
+        final TypeElement declaringType = (TypeElement) field.getEnclosingElement();
+
+        // access hidden fields of superclasses through a cast
+        final String declaringClassName = declaringType.getQualifiedName().toString();
+        final String fromField = declaringType.equals(typeElement)
+                                 ? "from." + field.getSimpleName()
+                                 : "((" + declaringClassName + ") from)." + field.getSimpleName();
+        final String toField = declaringType.equals(typeElement)
+                               ? "to." + field.getSimpleName()
+                               : "((" + declaringClassName + ") to)." + field.getSimpleName();
+
+        final TypeKind kind = field.asType().getKind();
+        // values that can not reach filtered classes are copied shallowly, see ValueFilter.copyShallow
+        final String value = kind.isPrimitive()
+                             ? fromField
+                             : "(shared[" + index + "] ? valueFilter.copyShallow(" + fromField + ")"
+                               + " : valueFilter.filterValue(" + fromField + "))";
+
+        writer.println("    " + toField + " = included[" + index + "] ? " + value + " : "
+                       + defaultValue(kind) + ";");
+      }
+      writer.println("  }");
+      writer.println();
+
+      writer.println("}");
+    }
+  }
+
+  private static final String defaultValue(final TypeKind kind) {
+    switch (kind) {
+      case BOOLEAN:
+        return "false";
+      case CHAR:
+        return "'\\0'";
+      case BYTE:
+        return "(byte) 0";
+      case SHORT:
+        return "(short) 0";
+      case INT:
+        return "0";
+      case LONG:
+        return "0L";
+      case FLOAT:
+        return "0.f";
+      case DOUBLE:
+        return "0.";
+      default:
+        return "null";
+    }
+  }
+
+}
@@ -5,6 +5,16 @@ import static de.pkreutzer.modelfilter.ModelFilter.*;
 import de.pkreutzer.modelfilter.View;
 import de.pkreutzer.modelfilter.*;
 
+import java.io.StringWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
 import org.junit.*;
 import static org.junit.Assert.*;
 
@@ -14,6 +24,25 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Collection;
+import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.LinkedHashMap;
+import java.util.HashMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 
 public final class ModelFilterTest {
 
@@ -48,6 +77,8 @@ public final class ModelFilterTest {
   public static interface NoFieldsDefaultValues extends View {}
   public static interface AllFieldsDefaultValues extends View {}
 
+  public static interface StaticFieldsChar extends View {}
+
   public static class SuperClass {
 
     @InView(PublicString.class)
@@ -402,6 +433,77 @@ public final class ModelFilterTest {
     }
   }
 
+  public static interface Person {
+    public String getName();
+    public int getAge();
+    public boolean isAdmin();
+    public Person getPartner();
+  }
+
+  public static interface PersonName extends View {}
+  public static interface PersonPartner extends View {}
+
+  public static final class PersonModel implements Person {
+    @InView(PersonName.class)
+    private String name;
+
+    private int age;
+
+    private boolean admin;
+
+    @InView(PersonPartner.class)
+    private Person partner;
+
+    public PersonModel() {
+      /* intentionally left blank */
+    }
+
+    public PersonModel(final String name, final int age, final boolean admin) {
+      this.name = name;
+      this.age = age;
+      this.admin = admin;
+    }
+
+    @Override
+    public final String getName() {
+      return this.name;
+    }
+
+    @Override
+    public final int getAge() {
+      return this.age;
+    }
+
+    @Override
+    public final boolean isAdmin() {
+      return this.admin;
+    }
+
+    @Override
+    public final Person getPartner() {
+      return this.partner;
+    }
+  }
+
+  public static final class StaticFields {
+    public static final String CONSTANT = "CONSTANT";
+    public static int counter = 13;
+
+    @InView(StaticFieldsChar.class)
+    public char firstChar;
+
+    public char secondChar;
+
+    public StaticFields() {
+      /* intentionally left blank */
+    }
+
+    public StaticFields(final char firstChar, final char secondChar) {
+      this.firstChar = firstChar;
+      this.secondChar = secondChar;
+    }
+  }
+
 
   // ==================================================================================
   //       H E L P E R   M E T H O D S
@@ -926,4 +1028,1217 @@ public final class ModelFilterTest {
     assertEquals("Clone does not match expected object.", expected, clonedObject);
   }
 
+  @Test
+  public final void testStaticFieldsAreNotReset() {
+    final StaticFields objectToClone = new StaticFields('a', 'b');
+    final StaticFields clonedObject = filter(objectToClone, StaticFieldsChar.class);
+
+    assertEquals("Included char field was not copied.", 'a', clonedObject.firstChar);
+    assertEquals("Excluded char field was not reset.", '\0', clonedObject.secondChar);
+    assertEquals("Static field was reset.", 13, StaticFields.counter);
+  }
+
+  @Test
+  public final void testObjectIsClonedCorrectlyMethodHandles() {
+    final OtherClass otherClass = new OtherClass("first", "second");
+    final SubClass objectToClone = new SubClass("string", 13, 3., otherClass, 1991.f, otherClass);
+
+    final SubClass clonedObject = buildFilter().
+                                    forClasses(SubClass.class, OtherClass.class).
+                                    useViews(AllFieldsSuperClass.class, FirstFieldOtherClass.class).
+                                    useAccessStrategy(AccessStrategy.METHOD_HANDLES).
+                                    applyTo(objectToClone);
+
+    final SubClass expected = new SubClass("string", 13, 3., new OtherClass("first", null), 0.f, null);
+
+    assertEquals("Clone does not match expected object.", expected, clonedObject);
+  }
+
+  @Test
+  public final void testDefaultValuesMethodHandles() {
+    final DefaultValues objectToClone = new DefaultValues();
+
+    final DefaultValues clonedObject = buildFilter().
+                                         forClass(DefaultValues.class).
+                                         useView(NoFieldsDefaultValues.class).
+                                         useAccessStrategy(AccessStrategy.METHOD_HANDLES).
+                                         applyTo(objectToClone);
+
+    final DefaultValues expected = new DefaultValues(null, null, 0., 0.);
+    assertEquals("Clone does not match expected object.", expected, clonedObject);
+  }
+
+  @Test
+  public final void testGeneratedFilterMatchesReflection() throws ClassNotFoundException {
+    // generated by the annotation processor while compiling the tests
+    Class.forName(ModelFilterTest.class.getName() + "_OtherClassModelFilter");
+
+    final List<OtherClass> list = new ArrayList<OtherClass>();
+    {
+      list.add(new OtherClass("first1", "second1"));
+      list.add(new OtherClass("first2", "second2"));
+    }
+    final CollectionContainer objectToClone = new CollectionContainer(list, null);
+
+    final CollectionContainer generatedClone = buildFilter().
+                                                 forClasses(CollectionContainer.class, OtherClass.class).
+                                                 useViews(ContainerList.class, SecondFieldOtherClass.class).
+                                                 applyTo(objectToClone);
+
+    final CollectionContainer reflectiveClone = buildFilter().
+                                                  forClasses(CollectionContainer.class, OtherClass.class).
+                                                  useViews(ContainerList.class, SecondFieldOtherClass.class).
+                                                  useAccessStrategy(AccessStrategy.REFLECTION).
+                                                  applyTo(objectToClone);
+
+    assertEquals("Generated filter does not match reflection.", reflectiveClone, generatedClone);
+    assertEquals("Clone does not match expected object.", null, generatedClone.list.get(0).firstField);
+    assertEquals("Clone does not match expected object.", "second1", generatedClone.list.get(0).secondField);
+  }
+
+  @Test
+  public final void testEqualObjectsAreNotMerged() {
+    final OtherClass shared = new OtherClass("first", "second");
+
+    final List<OtherClass> list = new ArrayList<OtherClass>();
+    for (int index = 0; index < 1000; ++index) {
+      list.add(new OtherClass("first", "second"));
+    }
+    list.add(shared);
+    list.add(shared);
+
+    final CollectionContainer clonedObject = buildFilter().
+                                               forClasses(CollectionContainer.class, OtherClass.class).
+                                               useViews(ContainerList.class, FirstFieldOtherClass.class).
+                                               expectedGraphSize(16).
+                                               applyTo(new CollectionContainer(list, null));
+
+    assertEquals("Clone does not have the expected size.", 1002, clonedObject.list.size());
+    assertNotSame("Equal objects were merged.", clonedObject.list.get(0), clonedObject.list.get(1));
+    assertSame("Same objects were not merged.", clonedObject.list.get(1000), clonedObject.list.get(1001));
+    assertEquals("Clone does not match expected object.", new OtherClass("first", null), clonedObject.list.get(999));
+  }
+
+  @Test
+  public final void testDeepObjectGraph() {
+    final int depth = 100000;
+
+    CycleClass objectToClone = null;
+    for (int index = 0; index < depth; ++index) {
+      objectToClone = new CycleClass(new ArrayList<CycleClass>(), objectToClone);
+    }
+
+    final CycleClass clonedObject = buildFilter().
+                                      forClass(CycleClass.class).
+                                      useView(Parent.class).
+                                      applyTo(objectToClone);
+
+    int clonedDepth = 0;
+    for (CycleClass current = clonedObject; current != null; current = current.parent) {
+      assertNull("Excluded field was not reset.", current.children);
+      ++clonedDepth;
+    }
+
+    assertEquals("Clone does not have the expected depth.", depth, clonedDepth);
+  }
+
+  @Test
+  public final void testFilterDoesNotKeepClonesBetweenCalls() {
+    final OtherClass objectToClone = new OtherClass("first", "second");
+
+    final ModelFilter modelFilter = buildFilter().
+                                      forClass(OtherClass.class).
+                                      useView(FirstFieldOtherClass.class).
+                                      build();
+
+    final OtherClass firstClone = modelFilter.applyTo(objectToClone);
+    final OtherClass secondClone = modelFilter.applyTo(objectToClone);
+
+    assertNotSame("Clone of previous call was re-used.", firstClone, secondClone);
+    assertEquals("Clone does not match expected object.", firstClone, secondClone);
+  }
+
+  @Test
+  public final void testFilterIsThreadSafe() throws Exception {
+    final ModelFilter modelFilter = buildFilter().
+                                      forClasses(CollectionContainer.class, OtherClass.class).
+                                      useViews(ContainerList.class, FirstFieldOtherClass.class).
+                                      build();
+
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      final List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+
+      for (int task = 0; task < 64; ++task) {
+        final int taskIndex = task;
+        results.add(executor.submit(new Callable<Boolean>() {
+          @Override
+          public final Boolean call() {
+            final List<OtherClass> list = new ArrayList<OtherClass>();
+            for (int index = 0; index < 100; ++index) {
+              list.add(new OtherClass("first" + taskIndex, "second"));
+            }
+
+            final CollectionContainer clonedObject = modelFilter.applyTo(new CollectionContainer(list, null));
+
+            for (final OtherClass element : clonedObject.list) {
+              if (!new OtherClass("first" + taskIndex, null).equals(element)) {
+                return false;
+              }
+            }
+
+            return clonedObject.list.size() == 100;
+          }
+        }));
+      }
+
+      for (final Future<Boolean> result : results) {
+        assertTrue("Concurrent call returned unexpected clone.", result.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public final void testParallelFilteringKeepsOrderAndSharing() {
+    final OtherClass shared = new OtherClass("shared", "second");
+
+    final List<OtherClass> list = new ArrayList<OtherClass>();
+    final Set<OtherClass> set = new HashSet<OtherClass>();
+    for (int index = 0; index < 10000; ++index) {
+      list.add(index % 100 == 0 ? shared : new OtherClass("first" + index, "second"));
+      set.add(new OtherClass("first" + index, "second"));
+    }
+
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      final CollectionContainer clonedObject = buildFilter().
+                                                 forClasses(CollectionContainer.class, OtherClass.class).
+                                                 useViews(AllFieldsCollectionContainer.class,
+                                                          FirstFieldOtherClass.class).
+                                                 useParallelism(pool, 64).
+                                                 applyTo(new CollectionContainer(list, set));
+
+      assertEquals("Clone does not have the expected size.", 10000, clonedObject.list.size());
+      for (int index = 0; index < 10000; ++index) {
+        final OtherClass expected = index % 100 == 0
+                                    ? new OtherClass("shared", null)
+                                    : new OtherClass("first" + index, null);
+        assertEquals("Order of elements was not kept.", expected, clonedObject.list.get(index));
+      }
+      assertSame("Shared object was cloned more than once.", clonedObject.list.get(0), clonedObject.list.get(100));
+
+      assertEquals("Clone does not have the expected size.", 10000, clonedObject.set.size());
+      assertTrue("Set does not contain filtered element.", clonedObject.set.contains(new OtherClass("first13", null)));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public final void testParallelFilteringRunsInConfiguredPool() throws Exception {
+    final List<OtherClass> list = new ArrayList<OtherClass>();
+    for (int index = 0; index < 10000; ++index) {
+      list.add(new OtherClass("first" + index, "second"));
+    }
+
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    final ForkJoinPool otherPool = new ForkJoinPool(1);
+    try {
+      final ModelFilter modelFilter = buildFilter().
+                                        forClass(OtherClass.class).
+                                        useView(FirstFieldOtherClass.class).
+                                        useParallelism(pool, 64).
+                                        build();
+
+      // called by a task of another pool, e.g. a parallel stream or CompletableFuture.supplyAsync
+      final List<OtherClass> clonedList = otherPool.submit(new Callable<List<OtherClass>>() {
+        @Override
+        public List<OtherClass> call() {
+          return modelFilter.applyTo(list);
+        }
+      }).get();
+
+      assertEquals("Clone does not have the expected size.", 10000, clonedList.size());
+      assertEquals("Clone does not match expected object.", new OtherClass("first42", null), clonedList.get(42));
+      assertTrue("Elements were not filtered in the configured pool.", pool.getStealCount() > 0);
+    } finally {
+      otherPool.shutdown();
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public final void testBatchSharesReferencedObjects() {
+    final OtherClass shared = new OtherClass("first", "second");
+
+    final List<SuperClass> objectsToClone = new ArrayList<SuperClass>();
+    for (int index = 0; index < 100; ++index) {
+      objectsToClone.add(new SuperClass("string" + index, index, 3., shared));
+    }
+
+    final ModelFilter modelFilter = buildFilter().
+                                      forClasses(SuperClass.class, OtherClass.class).
+                                      useViews(PublicString.class, SuperOther.class, FirstFieldOtherClass.class).
+                                      build();
+
+    final List<SuperClass> clonedObjects = modelFilter.applyToAll(objectsToClone);
+    final SuperClass[] clonedArray = modelFilter.applyToAll(objectsToClone.toArray(new SuperClass[0]));
+
+    assertEquals("Clone does not have the expected size.", 100, clonedObjects.size());
+    assertEquals("Clone does not have the expected size.", 100, clonedArray.length);
+    assertEquals("Array type was not kept.", SuperClass[].class, clonedArray.getClass());
+
+    for (int index = 0; index < 100; ++index) {
+      final SuperClass expected = new SuperClass("string" + index, 0, 0., new OtherClass("first", null));
+      assertEquals("Clone does not match expected object.", expected, clonedObjects.get(index));
+      assertEquals("Clone does not match expected object.", expected, clonedArray[index]);
+      assertSame("Shared object was cloned more than once.", clonedObjects.get(0).superOther,
+                 clonedObjects.get(index).superOther);
+      assertSame("Shared object was cloned more than once.", clonedArray[0].superOther,
+                 clonedArray[index].superOther);
+    }
+  }
+
+  @Test
+  public final void testIteratorSharesObjectsWithinWindow() {
+    final OtherClass shared = new OtherClass("first", "second");
+
+    final List<SuperClass> objectsToClone = new ArrayList<SuperClass>();
+    for (int index = 0; index < 10; ++index) {
+      objectsToClone.add(new SuperClass("string" + index, index, 3., shared));
+    }
+
+    final Iterator<SuperClass> iterator = buildFilter().
+                                            forClasses(SuperClass.class, OtherClass.class).
+                                            useViews(PublicInt.class, SuperOther.class, SecondFieldOtherClass.class).
+                                            identityWindow(4).
+                                            build().
+                                            filterIterator(objectsToClone.iterator());
+
+    final List<SuperClass> clonedObjects = new ArrayList<SuperClass>();
+    while (iterator.hasNext()) {
+      clonedObjects.add(iterator.next());
+    }
+
+    assertEquals("Clone does not have the expected size.", 10, clonedObjects.size());
+    for (int index = 0; index < 10; ++index) {
+      final SuperClass expected = new SuperClass(null, index, 0., new OtherClass(null, "second"));
+      assertEquals("Clone does not match expected object.", expected, clonedObjects.get(index));
+    }
+
+    assertSame("Shared object was cloned within window.", clonedObjects.get(0).superOther,
+               clonedObjects.get(3).superOther);
+    assertNotSame("Shared object was kept beyond window.", clonedObjects.get(3).superOther,
+                  clonedObjects.get(4).superOther);
+  }
+
+  @Test
+  public final void testStreamIsFilteredLazily() {
+    final List<OtherClass> objectsToClone = new ArrayList<OtherClass>();
+    for (int index = 0; index < 10; ++index) {
+      objectsToClone.add(new OtherClass("first" + index, "second" + index));
+    }
+
+    final List<OtherClass> clonedObjects = buildFilter().
+                                             forClass(OtherClass.class).
+                                             useView(FirstFieldOtherClass.class).
+                                             build().
+                                             filterStream(objectsToClone.stream()).
+                                             limit(3).
+                                             collect(Collectors.toList());
+
+    final List<OtherClass> expected = Arrays.asList(new OtherClass("first0", null),
+                                                    new OtherClass("first1", null),
+                                                    new OtherClass("first2", null));
+
+    assertEquals("Stream does not match expected elements.", expected, clonedObjects);
+  }
+
+  @Test
+  public final void testJsonIsWrittenWithoutExcludedFields() throws IOException {
+    final OtherClass otherClass = new OtherClass("first \"quoted\"", "second");
+    final SubClass objectToWrite = new SubClass("string", 13, 3., otherClass, 1991.f, otherClass);
+
+    final StringWriter writer = new StringWriter();
+    buildFilter().
+      forClasses(SubClass.class, OtherClass.class).
+      useViews(PublicString.class, PublicInt.class, SubOther.class, FirstFieldOtherClass.class).
+      build().
+      writeJson(objectToWrite, writer);
+
+    assertEquals("JSON does not match expected output.",
+                 "{\"subOther\":{\"firstField\":\"first \\\"quoted\\\"\"},\"publicString\":\"string\",\"publicInt\":13}",
+                 writer.toString());
+  }
+
+  @Test
+  public final void testJsonContainers() throws IOException {
+    final Map<String, Object> map = new LinkedHashMap<String, Object>();
+    map.put("list", Arrays.asList(new OtherClass("first", "second"), null));
+    map.put("array", new int[] { 13, 3 });
+    map.put("text", "line\n");
+
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    buildFilter().
+      forClass(OtherClass.class).
+      useView(SecondFieldOtherClass.class).
+      build().
+      writeJson(map, outputStream);
+
+    assertEquals("JSON does not match expected output.",
+                 "{\"list\":[{\"secondField\":\"second\"},null],\"array\":[13, 3],\"text\":\"line\\n\"}",
+                 new String(outputStream.toByteArray(), "UTF-8"));
+  }
+
+  @Test
+  public final void testJsonDoesNotLeakExcludedFieldsThroughStrings() throws IOException {
+    final ModelFilter filter = buildFilter().
+                                 forClass(OtherClass.class).
+                                 useView(FirstFieldOtherClass.class).
+                                 build();
+
+    final StringWriter writer = new StringWriter();
+    filter.writeJson(Collections.singletonMap("wrapped",
+                                              Optional.of(new OtherClass("first", "second"))), writer);
+    assertEquals("JSON does not match expected output.", "{\"wrapped\":{\"firstField\":\"first\"}}",
+                 writer.toString());
+
+    try {
+      filter.writeJson(Collections.singletonMap(new OtherClass("first", "second"), "value"), new StringWriter());
+      fail("Object of filtered class was written as map key.");
+    } catch (final IllegalArgumentException exception) {
+      // expected
+    }
+
+    try {
+      filter.writeJson(new CompletableFuture<OtherClass>(), new StringWriter());
+      fail("Object of the JDK was written by toString.");
+    } catch (final IllegalArgumentException exception) {
+      // expected
+    }
+  }
+
+  public static interface AmountView extends View {}
+
+  public static final class Amount extends Number {
+
+    @InView(AmountView.class) public long value;
+    public String secret;
+
+    public Amount(final long value, final String secret) {
+      this.value = value;
+      this.secret = secret;
+    }
+
+    @Override
+    public int intValue() {
+      return (int) this.value;
+    }
+
+    @Override
+    public long longValue() {
+      return this.value;
+    }
+
+    @Override
+    public float floatValue() {
+      return this.value;
+    }
+
+    @Override
+    public double doubleValue() {
+      return this.value;
+    }
+
+    @Override
+    public String toString() {
+      return this.value + " " + this.secret;
+    }
+
+  }
+
+  public static class HiddenId {
+
+    @InView(AmountView.class) public String id;
+
+  }
+
+  public static final class HidingId extends HiddenId {
+
+    @InView(AmountView.class) public String id;
+
+  }
+
+  @Test
+  public final void testJsonWritesFilteredNumbersAndHiddenFields() throws IOException {
+    final ModelFilter filter = buildFilter().
+                                 forClasses(Amount.class, HidingId.class).
+                                 useView(AmountView.class).
+                                 build();
+
+    final StringWriter writer = new StringWriter();
+    filter.writeJson(Collections.singletonMap("amount", new Amount(42L, "secret")), writer);
+    assertEquals("JSON does not match expected output.", "{\"amount\":{\"value\":42}}", writer.toString());
+
+    try {
+      filter.writeJson(Collections.singletonMap(new Amount(42L, "secret"), "value"), new StringWriter());
+      fail("Object of filtered class was written as map key.");
+    } catch (final IllegalArgumentException exception) {
+      // expected
+    }
+
+    final HidingId hidingId = new HidingId();
+    hidingId.id = "sub";
+    ((HiddenId) hidingId).id = "base";
+    final StringWriter hidingWriter = new StringWriter();
+    filter.writeJson(hidingId, hidingWriter);
+    assertEquals("JSON does not match expected output.", "{\"id\":\"sub\",\"HiddenId.id\":\"base\"}",
+                 hidingWriter.toString());
+
+    // not filtered, written with all instance fields
+    final StringWriter unfilteredWriter = new StringWriter();
+    buildFilter().forClass(Amount.class).useView(AmountView.class).build().writeJson(hidingId, unfilteredWriter);
+    assertEquals("JSON does not match expected output.", "{\"id\":\"sub\",\"HiddenId.id\":\"base\"}",
+                 unfilteredWriter.toString());
+  }
+
+  @Test
+  public final void testProxyReturnsFieldsOfViewsOnly() {
+    final PersonModel alice = new PersonModel("alice", 42, true);
+    final PersonModel bob = new PersonModel("bob", 43, false);
+    alice.partner = bob;
+    bob.partner = alice;
+
+    final Person proxy = buildFilter().
+                           forClass(PersonModel.class).
+                           useViews(PersonName.class, PersonPartner.class).
+                           build().
+                           applyAsProxy((Person) alice, Person.class);
+
+    assertFalse("Proxy is a clone.", proxy instanceof PersonModel);
+    assertEquals("Included field was not forwarded.", "alice", proxy.getName());
+    assertEquals("Excluded field was forwarded.", 0, proxy.getAge());
+    assertFalse("Excluded field was forwarded.", proxy.isAdmin());
+
+    final Person partner = proxy.getPartner();
+    assertFalse("Child is not wrapped.", partner instanceof PersonModel);
+    assertEquals("Included field was not forwarded.", "bob", partner.getName());
+    assertEquals("Excluded field was forwarded.", 0, partner.getAge());
+    assertSame("Cycle was not kept.", proxy, partner.getPartner());
+    assertSame("Child was wrapped twice.", partner, proxy.getPartner());
+  }
+
+  @Test
+  public final void testCompliantObjectsAreNotCloned() {
+    final List<OtherClass> list = new ArrayList<OtherClass>();
+    {
+      list.add(new OtherClass("first1", "second1"));
+      list.add(new OtherClass("first2", "second2"));
+    }
+    final CollectionContainer objectToClone = new CollectionContainer(list, null);
+
+    final ModelFilter modelFilter = buildFilter().
+                                      forClasses(CollectionContainer.class, OtherClass.class).
+                                      useViews(ContainerList.class, FirstFieldOtherClass.class).
+                                      reuseCompliantObjects(true).
+                                      build();
+
+    final CollectionContainer clonedObject = modelFilter.applyTo(objectToClone);
+    assertNotSame("Object that is not compliant was not cloned.", objectToClone, clonedObject);
+
+    final CollectionContainer filteredAgain = modelFilter.applyTo(clonedObject);
+    assertSame("Compliant object was cloned.", clonedObject, filteredAgain);
+
+    // a single element that is not compliant requires cloning the graph
+    clonedObject.list.get(1).secondField = "second2";
+    final CollectionContainer filteredElement = modelFilter.applyTo(clonedObject);
+    assertNotSame("Object that is not compliant was not cloned.", clonedObject, filteredElement);
+    assertEquals("Clone does not match expected object.", null, filteredElement.list.get(1).secondField);
+
+    // other roots of a batch share compliant roots
+    final OtherClass compliant = new OtherClass("first3", null);
+    final List<OtherClass> elements = new ArrayList<OtherClass>(Arrays.asList(compliant,
+                                                                              new OtherClass("first4", "second4")));
+    final List<Object> batch = modelFilter.applyToAll(Arrays.<Object>asList(compliant,
+                                                                           new CollectionContainer(elements, null)));
+    assertSame("Compliant object was cloned.", compliant, batch.get(0));
+    assertEquals("Clone does not match expected object.",
+                 new OtherClass("first4", null), modelFilter.applyTo(elements.get(1)));
+    assertSame("Compliant object was not shared within batch.",
+               compliant, ((CollectionContainer) batch.get(1)).list.get(0));
+
+    final CollectionContainer notReused = buildFilter().
+                                            forClasses(CollectionContainer.class, OtherClass.class).
+                                            useViews(ContainerList.class, FirstFieldOtherClass.class).
+                                            applyTo(filteredAgain);
+    assertNotSame("Compliant object was reused by default.", filteredAgain, notReused);
+  }
+
+  public static interface BaseRole extends View {}
+  public static interface ReadRole extends BaseRole {}
+  public static interface WriteRole extends BaseRole {}
+  public static interface AdminRole extends ReadRole, WriteRole {}
+
+  @Test
+  public final void testViewHierarchiesDoMatch() {
+    assertTrue("Super-view of requested view does not match.",
+               viewsDoMatch(BaseRole.class, asSet(AdminRole.class)));
+    assertTrue("Super-view of requested view does not match.",
+               viewsDoMatch(WriteRole.class, asSet(PublicFloat.class, AdminRole.class)));
+    assertTrue("Base view does not match.",
+               viewsDoMatch(View.class, asSet(ReadRole.class)));
+    assertFalse("Sub-view of requested view matches.",
+                viewsDoMatch(AdminRole.class, asSet(ReadRole.class, WriteRole.class)));
+    assertFalse("Sibling view matches.",
+                viewsDoMatch(WriteRole.class, asSet(ReadRole.class)));
+    assertFalse("View matches empty set of views.",
+                viewsDoMatch(BaseRole.class, new HashSet<Class<? extends View>>()));
+  }
+
+  @Test
+  public final void testFiltersDecideIndependentlyPerClass() {
+    final OtherClass element = new OtherClass("first", "second");
+    final List<OtherClass> list = new ArrayList<OtherClass>();
+    list.add(element);
+    final CollectionContainer objectToClone = new CollectionContainer(list, null);
+
+    final ModelFilter containerFilter = buildFilter().
+                                          forClass(CollectionContainer.class).
+                                          useViews(ContainerList.class, FirstFieldOtherClass.class).
+                                          build();
+    final ModelFilter elementFilter = buildFilter().
+                                        forClasses(CollectionContainer.class, OtherClass.class).
+                                        useViews(ContainerList.class, FirstFieldOtherClass.class).
+                                        build();
+
+    assertSame("Object of class that is not filtered was cloned.",
+               element, containerFilter.applyTo(objectToClone).list.get(0));
+    assertEquals("Clone does not match expected object.",
+                 new OtherClass("first", null), elementFilter.applyTo(objectToClone).list.get(0));
+    assertSame("Object of class that is not filtered was cloned.",
+               element, containerFilter.applyTo(objectToClone).list.get(0));
+  }
+
+  public static final class CreatedByFactory {
+
+    @InView(FirstFieldOtherClass.class)
+    String firstField;
+    String secondField;
+
+    static int created = 0;
+
+    private CreatedByFactory() {
+    }
+
+    public static final CreatedByFactory create() {
+      ++created;
+      return new CreatedByFactory();
+    }
+
+  }
+
+  @Test
+  public final void testObjectsAreCreatedByFactories() {
+    final CreatedByFactory objectToClone = new CreatedByFactory();
+    objectToClone.firstField = "first";
+    objectToClone.secondField = "second";
+
+    for (final AccessStrategy accessStrategy : AccessStrategy.values()) {
+      final CreatedByFactory clone = buildFilter().
+                                       forClass(CreatedByFactory.class).
+                                       useView(FirstFieldOtherClass.class).
+                                       useAccessStrategy(accessStrategy).
+                                       applyTo(objectToClone);
+      assertNotSame("Object was not cloned.", objectToClone, clone);
+      assertEquals("Clone does not match expected object.", "first", clone.firstField);
+      assertEquals("Clone does not match expected object.", null, clone.secondField);
+    }
+
+    final LinkedList<CreatedByFactory> list = new LinkedList<CreatedByFactory>();
+    list.add(objectToClone);
+
+    CreatedByFactory.created = 0;
+    final List<CreatedByFactory> clonedList = buildFilter().
+                                                forClass(CreatedByFactory.class).
+                                                useView(FirstFieldOtherClass.class).
+                                                withFactory(CreatedByFactory.class,
+                                                            new Supplier<CreatedByFactory>() {
+                                                              @Override
+                                                              public CreatedByFactory get() {
+                                                                return CreatedByFactory.create();
+                                                              }
+                                                            }).
+                                                withFactory(LinkedList.class,
+                                                            new Supplier<LinkedList<?>>() {
+                                                              @Override
+                                                              public LinkedList<?> get() {
+                                                                return new LinkedList<Object>(
+                                                                         Arrays.asList("from factory"));
+                                                              }
+                                                            }).
+                                                applyTo(list);
+    assertEquals("Clone does not match expected object.", 2, clonedList.size());
+    assertEquals("Clone does not match expected object.", "from factory", clonedList.get(0));
+    assertEquals("Clone was not created by factory.", 1, CreatedByFactory.created);
+    assertEquals("Clone does not match expected object.", "first", clonedList.get(1).firstField);
+  }
+
+  public static interface TelemetryValues extends View {}
+
+  public static final class Telemetry {
+
+    @InView(TelemetryValues.class) public boolean flag;
+    @InView(TelemetryValues.class) public char unit;
+    @InView(TelemetryValues.class) public byte level;
+    @InView(TelemetryValues.class) public short channel;
+    @InView(TelemetryValues.class) public int count;
+    @InView(TelemetryValues.class) public long timestamp;
+    @InView(TelemetryValues.class) public float ratio;
+    @InView(TelemetryValues.class) public double value;
+    @InView(TelemetryValues.class) public String name;
+
+    public long sequence;
+    public double threshold;
+    // initialized by the constructor, has to be reset anyway
+    public int initialized = 42;
+    public String source = "sensor";
+
+  }
+
+  @Test
+  public final void testPrimitiveFieldsAreCopiedForAllAccessStrategies() {
+    final Telemetry objectToClone = new Telemetry();
+    objectToClone.flag = true;
+    objectToClone.unit = 'm';
+    objectToClone.level = 3;
+    objectToClone.channel = 7;
+    objectToClone.count = 100;
+    objectToClone.timestamp = 1234567890123L;
+    objectToClone.ratio = .5f;
+    objectToClone.value = 3.25;
+    objectToClone.name = "speed";
+    objectToClone.sequence = 99L;
+    objectToClone.threshold = 1.5;
+    objectToClone.initialized = 43;
+
+    for (final AccessStrategy accessStrategy : AccessStrategy.values()) {
+      final Telemetry clone = buildFilter().
+                                forClass(Telemetry.class).
+                                useView(TelemetryValues.class).
+                                useAccessStrategy(accessStrategy).
+                                applyTo(objectToClone);
+
+      assertEquals("Clone does not match expected object.", true, clone.flag);
+      assertEquals("Clone does not match expected object.", 'm', clone.unit);
+      assertEquals("Clone does not match expected object.", 3, clone.level);
+      assertEquals("Clone does not match expected object.", 7, clone.channel);
+      assertEquals("Clone does not match expected object.", 100, clone.count);
+      assertEquals("Clone does not match expected object.", 1234567890123L, clone.timestamp);
+      assertEquals("Clone does not match expected object.", .5f, clone.ratio, 0.f);
+      assertEquals("Clone does not match expected object.", 3.25, clone.value, 0.);
+      assertEquals("Clone does not match expected object.", "speed", clone.name);
+      assertEquals("Clone does not match expected object.", 0L, clone.sequence);
+      assertEquals("Clone does not match expected object.", 0., clone.threshold, 0.);
+      assertEquals("Clone does not match expected object.", 0, clone.initialized);
+      assertEquals("Clone does not match expected object.", null, clone.source);
+    }
+  }
+
+  public static enum Position { FIRST, SECOND, THIRD }
+
+  @Test
+  public final void testMapKeysAndValuesAreFiltered() {
+    final ModelFilter modelFilter = buildFilter().
+                                      forClass(OtherClass.class).
+                                      useView(FirstFieldOtherClass.class).
+                                      build();
+
+    final OtherClass shared = new OtherClass("shared", "second");
+    final Map<OtherClass, OtherClass> hashMap = new HashMap<OtherClass, OtherClass>();
+    for (int index = 0; index < 1000; ++index) {
+      hashMap.put(new OtherClass("key" + index, "second"), shared);
+    }
+    final Map<OtherClass, OtherClass> clonedHashMap = modelFilter.applyTo(hashMap);
+    assertEquals("Clone does not match expected object.", HashMap.class, clonedHashMap.getClass());
+    assertEquals("Clone does not match expected object.", 1000, clonedHashMap.size());
+    assertEquals("Clone does not match expected object.",
+                 new OtherClass("shared", null), clonedHashMap.get(new OtherClass("key42", null)));
+    assertSame("Shared object was cloned more than once.",
+               clonedHashMap.get(new OtherClass("key1", null)), clonedHashMap.get(new OtherClass("key2", null)));
+
+    final TreeMap<String, OtherClass> treeMap = new TreeMap<String, OtherClass>(Collections.reverseOrder());
+    treeMap.put("a", new OtherClass("first a", "second"));
+    treeMap.put("b", new OtherClass("first b", "second"));
+    final TreeMap<String, OtherClass> clonedTreeMap = modelFilter.applyTo(treeMap);
+    assertEquals("Clone does not match expected object.", treeMap.comparator(), clonedTreeMap.comparator());
+    assertEquals("Clone does not match expected object.", Arrays.asList("b", "a"),
+                 new ArrayList<String>(clonedTreeMap.keySet()));
+    assertEquals("Clone does not match expected object.", new OtherClass("first b", null), clonedTreeMap.get("b"));
+
+    final EnumMap<Position, OtherClass> enumMap = new EnumMap<Position, OtherClass>(Position.class);
+    enumMap.put(Position.THIRD, new OtherClass("third", "second"));
+    enumMap.put(Position.FIRST, new OtherClass("first", "second"));
+    final EnumMap<Position, OtherClass> clonedEnumMap = modelFilter.applyTo(enumMap);
+    assertEquals("Clone does not match expected object.", Arrays.asList(Position.FIRST, Position.THIRD),
+                 new ArrayList<Position>(clonedEnumMap.keySet()));
+    assertEquals("Clone does not match expected object.",
+                 new OtherClass("third", null), clonedEnumMap.get(Position.THIRD));
+
+    final Map<String, Object> linkedHashMap = new LinkedHashMap<String, Object>();
+    linkedHashMap.put("z", new OtherClass("z", "second"));
+    linkedHashMap.put("self", linkedHashMap);
+    linkedHashMap.put("a", null);
+    final Map<String, Object> clonedLinkedHashMap = modelFilter.applyTo(linkedHashMap);
+    assertEquals("Clone does not match expected object.", Arrays.asList("z", "self", "a"),
+                 new ArrayList<String>(clonedLinkedHashMap.keySet()));
+    assertSame("Cycle was not preserved.", clonedLinkedHashMap, clonedLinkedHashMap.get("self"));
+    assertEquals("Clone does not match expected object.", new OtherClass("z", null), clonedLinkedHashMap.get("z"));
+  }
+
+  @Test
+  public final void testCollectionsWithoutConstructorAreFiltered() {
+    final ModelFilter modelFilter = buildFilter().
+                                      forClass(OtherClass.class).
+                                      useView(FirstFieldOtherClass.class).
+                                      build();
+    final OtherClass first = new OtherClass("first", "second");
+    final OtherClass second = new OtherClass("other", "second");
+    final List<OtherClass> expected = Arrays.asList(new OtherClass("first", null), new OtherClass("other", null));
+
+    final List<OtherClass> asList = modelFilter.applyTo(Arrays.asList(first, second));
+    assertEquals("Clone does not match expected object.", expected, asList);
+
+    final List<OtherClass> arrayList = new ArrayList<OtherClass>(Arrays.asList(second, first, second));
+    final List<OtherClass> subList = modelFilter.applyTo(arrayList.subList(1, 3));
+    assertEquals("Clone does not match expected object.", expected, subList);
+
+    final List<OtherClass> unmodifiableList = modelFilter.applyTo(Collections.unmodifiableList(arrayList));
+    assertEquals("Clone does not match expected object.", 3, unmodifiableList.size());
+    assertEquals("Clone does not match expected object.", expected, unmodifiableList.subList(1, 3));
+    try {
+      unmodifiableList.add(first);
+      fail("Clone of unmodifiable list is modifiable.");
+    } catch (final UnsupportedOperationException exception) {
+      // expected
+    }
+
+    final Set<OtherClass> unmodifiableSet =
+            modelFilter.applyTo(Collections.unmodifiableSet(new HashSet<OtherClass>(Arrays.asList(first, second))));
+    assertEquals("Clone does not match expected object.", new HashSet<OtherClass>(expected), unmodifiableSet);
+
+    assertEquals("Clone does not match expected object.",
+                 Collections.singletonList(new OtherClass("first", null)),
+                 modelFilter.applyTo(Collections.singletonList(first)));
+    assertEquals("Clone does not match expected object.",
+                 Collections.emptySet(), modelFilter.applyTo(Collections.emptySet()));
+
+    final List<OtherClass> linkedList = buildFilter().
+                                          forClass(OtherClass.class).
+                                          useView(FirstFieldOtherClass.class).
+                                          withCollectionFactory(ArrayList.class, new CollectionFactory() {
+                                            @Override
+                                            public Collection<Object> newTarget(final Collection<?> original,
+                                                                                final int size) {
+                                              return new LinkedList<Object>();
+                                            }
+                                          }).
+                                          applyTo(new ArrayList<OtherClass>(Arrays.asList(first, second)));
+    assertEquals("Clone does not match expected object.", LinkedList.class, linkedList.getClass());
+    assertEquals("Clone does not match expected object.", expected, linkedList);
+  }
+
+  public static interface WrappersView extends View {}
+
+  public static final class Wrappers {
+
+    @InView(WrappersView.class) public Set<Position> positions;
+    @InView(WrappersView.class) public List<OtherClass> list;
+    @InView(WrappersView.class) public Set<OtherClass> set;
+    @InView(WrappersView.class) public Map<String, OtherClass> map;
+    @InView(WrappersView.class) public Collection<OtherClass> others;
+
+  }
+
+  @Test
+  public final void testEnumSetsAndWrappersKeepTheirSemantics() {
+    final OtherClass first = new OtherClass("first", "second");
+    final Wrappers objectToClone = new Wrappers();
+    objectToClone.positions = EnumSet.of(Position.THIRD, Position.FIRST);
+    objectToClone.list = Collections.synchronizedList(new ArrayList<OtherClass>(Arrays.asList(first)));
+    objectToClone.set = Collections.synchronizedSet(new HashSet<OtherClass>(Arrays.asList(first)));
+    objectToClone.map = Collections.synchronizedMap(new HashMap<String, OtherClass>());
+    objectToClone.map.put("first", first);
+
+    for (final AccessStrategy accessStrategy : AccessStrategy.values()) {
+      final ModelFilter modelFilter = buildFilter().
+                                        forClasses(Wrappers.class, OtherClass.class).
+                                        useViews(WrappersView.class, FirstFieldOtherClass.class).
+                                        useAccessStrategy(accessStrategy).
+                                        build();
+      final Wrappers clone = modelFilter.applyTo(objectToClone);
+      final OtherClass expected = new OtherClass("first", null);
+
+      assertTrue("Clone does not match expected object.", clone.positions instanceof EnumSet);
+      assertEquals("Clone does not match expected object.", EnumSet.of(Position.FIRST, Position.THIRD),
+                   clone.positions);
+      assertEquals("Clone does not match expected object.", objectToClone.list.getClass(), clone.list.getClass());
+      assertEquals("Clone does not match expected object.", Arrays.asList(expected), clone.list);
+      assertEquals("Clone does not match expected object.", objectToClone.set.getClass(), clone.set.getClass());
+      assertEquals("Clone does not match expected object.", Collections.singleton(expected), clone.set);
+      assertEquals("Clone does not match expected object.", objectToClone.map.getClass(), clone.map.getClass());
+      assertEquals("Clone does not match expected object.", expected, clone.map.get("first"));
+
+      final Wrappers checked = new Wrappers();
+      checked.others = Collections.checkedCollection(new ArrayList<OtherClass>(), OtherClass.class);
+      try {
+        modelFilter.applyTo(checked);
+        fail("Checked collection was copied without its element type.");
+      } catch (final CloningFailedException exception) {
+        // expected
+      }
+
+      checked.others = null;
+      checked.map = Collections.checkedMap(new HashMap<String, OtherClass>(), String.class, OtherClass.class);
+      try {
+        modelFilter.applyTo(checked);
+        fail("Checked map was copied without its key and value types.");
+      } catch (final CloningFailedException exception) {
+        // expected
+      }
+    }
+
+    final Set<String> sortedSet =
+            Collections.synchronizedNavigableSet(new TreeSet<String>(Collections.reverseOrder()));
+    sortedSet.addAll(Arrays.asList("a", "b"));
+    final Set<String> clonedSortedSet = buildFilter().
+                                          forClass(OtherClass.class).
+                                          useView(FirstFieldOtherClass.class).
+                                          applyTo(sortedSet);
+    assertEquals("Clone does not match expected object.", sortedSet.getClass(), clonedSortedSet.getClass());
+    assertEquals("Clone does not match expected object.", Arrays.asList("b", "a"),
+                 new ArrayList<String>(clonedSortedSet));
+  }
+
+  public static interface PayloadView extends View {}
+
+  public static final class Payload {
+
+    @InView(PayloadView.class) public String[][] names;
+    @InView(PayloadView.class) public List<List<Long>> ids;
+    @InView(PayloadView.class) public Map<String, byte[]> blobs;
+    @InView(PayloadView.class) public Object[] mixed;
+    @InView(PayloadView.class) public List<OtherClass> others;
+
+  }
+
+  @Test
+  public final void testPayloadThatCanNotReachFilteredClassesIsCopiedShallowly() {
+    final Payload objectToClone = new Payload();
+    objectToClone.names = new String[][] { { "a", "b" }, { "c" } };
+    objectToClone.ids = new ArrayList<List<Long>>();
+    objectToClone.ids.add(new ArrayList<Long>(Arrays.asList(1L, 2L)));
+    objectToClone.blobs = new HashMap<String, byte[]>();
+    objectToClone.blobs.put("blob", new byte[] { 1, 2, 3 });
+    objectToClone.mixed = new Object[] { new String[] { "x" }, new OtherClass("first", "second") };
+    objectToClone.others = new ArrayList<OtherClass>(Arrays.asList(new OtherClass("first", "second")));
+
+    for (final AccessStrategy accessStrategy : AccessStrategy.values()) {
+      final Payload clone = buildFilter().
+                              forClasses(Payload.class, OtherClass.class).
+                              useViews(PayloadView.class, FirstFieldOtherClass.class).
+                              useAccessStrategy(accessStrategy).
+                              applyTo(objectToClone);
+
+      assertNotSame("Array was not copied.", objectToClone.names, clone.names);
+      assertTrue("Clone does not match expected object.", Arrays.deepEquals(objectToClone.names, clone.names));
+      assertSame("Array was copied deeply (" + accessStrategy + ").", objectToClone.names[0], clone.names[0]);
+      assertNotSame("Collection was not copied.", objectToClone.ids, clone.ids);
+      assertEquals("Clone does not match expected object.", objectToClone.ids, clone.ids);
+      assertSame("Collection was copied deeply (" + accessStrategy + ").", objectToClone.ids.get(0), clone.ids.get(0));
+      assertNotSame("Map was not copied.", objectToClone.blobs, clone.blobs);
+      assertSame("Clone does not match expected object.", objectToClone.blobs.get("blob"), clone.blobs.get("blob"));
+
+      // elements that may be filtered
+      assertEquals("Clone does not match expected object.", new OtherClass("first", null), clone.mixed[1]);
+      assertEquals("Clone does not match expected object.", new OtherClass("first", null), clone.others.get(0));
+    }
+  }
+
+  @Test
+  public final void testStatisticsAreReportedToListener() {
+    final OtherClass shared = new OtherClass("first", "second");
+    final List<OtherClass> objectToClone =
+            new ArrayList<OtherClass>(Arrays.asList(shared, shared, new OtherClass("third", "fourth")));
+
+    final FilterMetrics metrics = new FilterMetrics();
+    final List<FilterStatistics> reported = new ArrayList<FilterStatistics>();
+    final ModelFilter filter = buildFilter().
+                                 forClass(OtherClass.class).
+                                 useView(FirstFieldOtherClass.class).
+                                 reuseCompliantObjects(true).
+                                 withListener(new FilterListener() {
+                                   @Override
+                                   public void filtered(final FilterStatistics statistics) {
+                                     reported.add(statistics);
+                                     metrics.filtered(statistics);
+                                   }
+                                 }).
+                                 build();
+
+    filter.applyTo(objectToClone);
+    // already filtered correctly
+    filter.applyTo(new OtherClass("first", null));
+
+    assertEquals("Statistics were not reported.", 2, reported.size());
+    final FilterStatistics statistics = reported.get(0);
+    assertEquals("Statistics do not match.", ArrayList.class, statistics.getRootClass());
+    assertEquals("Statistics do not match.", "FirstFieldOtherClass", statistics.getViewSetName());
+    assertEquals("Statistics do not match.", 2, statistics.getObjectsCloned());
+    assertEquals("Statistics do not match.", 2, statistics.getFieldsCopied());
+    assertEquals("Statistics do not match.", 1, statistics.getContainersCopied());
+    assertEquals("Statistics do not match.", 1, statistics.getSharedReferences());
+    assertEquals("Statistics do not match.", 0, reported.get(1).getObjectsCloned());
+
+    final List<FilterMetrics.Counts> counts = metrics.getCounts();
+    assertEquals("Metrics do not match.", 2, counts.size());
+    for (final FilterMetrics.Counts count : counts) {
+      assertEquals("Metrics do not match.", 1L, count.getInvocations());
+      assertEquals("Metrics do not match.",
+                   count.getRootClassName().equals(ArrayList.class.getName()) ? 2L : 0L, count.getObjectsCloned());
+    }
+  }
+
+  @Test
+  public final void testFilterEventsAreRecorded() throws IOException {
+    final Path file = Files.createTempFile("modelfilter", ".jfr");
+
+    try (final Recording recording = new Recording()) {
+      recording.enable("de.pkreutzer.modelfilter.Filter");
+      recording.start();
+      buildFilter().
+        forClass(OtherClass.class).
+        useView(FirstFieldOtherClass.class).
+        applyTo(new OtherClass("first", "second"));
+      recording.stop();
+      recording.dump(file);
+
+      final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+      assertEquals("Event was not recorded.", 1, events.size());
+      assertEquals("Event does not match.", "FirstFieldOtherClass", events.get(0).getString("viewSet"));
+      assertEquals("Event does not match.", 1, events.get(0).getInt("objectsCloned"));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public final void testFilterIntoReusesTargetGraph() {
+    final ModelFilter filter = buildFilter().
+                                 forClasses(CollectionContainer.class, OtherClass.class).
+                                 useViews(ContainerList.class, ContainerSet.class, FirstFieldOtherClass.class).
+                                 reuseCompliantObjects(false).
+                                 build();
+
+    final CollectionContainer target = filter.applyTo(new CollectionContainer(
+            new ArrayList<OtherClass>(Arrays.asList(new OtherClass("a", "b"))),
+            new HashSet<OtherClass>(Arrays.asList(new OtherClass("c", "d")))));
+    final List<OtherClass> list = target.list;
+    final OtherClass listElement = target.list.get(0);
+    final Set<OtherClass> set = target.set;
+
+    final CollectionContainer objectToClone = new CollectionContainer(
+            new ArrayList<OtherClass>(Arrays.asList(new OtherClass("e", "f"), new OtherClass("g", "h"))),
+            new HashSet<OtherClass>(Arrays.asList(new OtherClass("i", "j"))));
+    final CollectionContainer expected = new CollectionContainer(
+            new ArrayList<OtherClass>(Arrays.asList(new OtherClass("e", null), new OtherClass("g", null))),
+            new HashSet<OtherClass>(Arrays.asList(new OtherClass("i", null))));
+
+    assertSame("Target was not reused.", target, filter.filterInto(objectToClone, target));
+    assertEquals("Clone does not match expected object.", expected, target);
+    assertSame("List was not reused.", list, target.list);
+    assertSame("Element was not reused.", listElement, target.list.get(0));
+    assertSame("Set was not reused.", set, target.set);
+    assertEquals("Source was modified.", new OtherClass("e", "f"), objectToClone.list.get(0));
+  }
+
+  @Test
+  public final void testObjectsAreRedactedInPlace() {
+    final CycleClass parent = new CycleClass();
+    final CycleClass child = new CycleClass();
+    parent.children = new ArrayList<CycleClass>(Arrays.asList(child));
+    child.parent = parent;
+    final OtherClass element = new OtherClass("first", "second");
+    final CollectionContainer container = new CollectionContainer(new ArrayList<OtherClass>(Arrays.asList(element)),
+                                                                  new HashSet<OtherClass>(Arrays.asList(element)));
+
+    final ModelFilter filter = buildFilter().
+                                 forClasses(CycleClass.class, CollectionContainer.class, OtherClass.class).
+                                 useViews(Children.class, ContainerList.class, ContainerSet.class,
+                                          FirstFieldOtherClass.class).
+                                 build();
+
+    assertSame("Object was cloned.", parent, filter.redactInPlace(parent));
+    assertSame("Object was cloned.", child, parent.children.get(0));
+    assertNull("Field was not reset.", child.parent);
+
+    assertSame("Object was cloned.", container, filter.redactInPlace(container));
+    assertSame("Object was cloned.", element, container.list.get(0));
+    assertEquals("Object was not redacted.", new OtherClass("first", null), element);
+    assertTrue("Set was not rebuilt.", container.set.contains(new OtherClass("first", null)));
+  }
+
+  @Test
+  public final void testNestedHashContainersAreRebuiltAfterRedaction() {
+    final ModelFilter filter = buildFilter().
+                                 forClass(OtherClass.class).
+                                 useView(FirstFieldOtherClass.class).
+                                 build();
+    final List<OtherClass> redactedList = Arrays.asList(new OtherClass("first", null));
+
+    final Set<List<OtherClass>> setOfLists = new HashSet<List<OtherClass>>();
+    setOfLists.add(new ArrayList<OtherClass>(Arrays.asList(new OtherClass("first", "second"))));
+    filter.redactInPlace(setOfLists);
+    assertTrue("Set was not rebuilt.", setOfLists.contains(redactedList));
+
+    final Map<Set<OtherClass>, String> mapOfSets = new HashMap<Set<OtherClass>, String>();
+    mapOfSets.put(new HashSet<OtherClass>(Arrays.asList(new OtherClass("first", "second"))), "value");
+    filter.redactInPlace(Collections.singletonList(mapOfSets));
+    assertEquals("Map was not rebuilt.", "value",
+                 mapOfSets.get(Collections.singleton(new OtherClass("first", null))));
+
+    final Set<OtherClass> unmodifiableSet =
+            Collections.unmodifiableSet(new HashSet<OtherClass>(Arrays.asList(new OtherClass("first", "second"))));
+    try {
+      filter.redactInPlace(unmodifiableSet);
+      fail("Unmodifiable set was left with stale hash codes.");
+    } catch (final CloningFailedException exception) {
+      // expected
+    }
+
+    // containers whose elements keep their hash codes are not rebuilt, even if unmodifiable
+    final Set<OtherClass> unchangedSet =
+            Collections.unmodifiableSet(new HashSet<OtherClass>(Arrays.asList(new OtherClass("first", null))));
+    assertSame("Object was cloned.", unchangedSet, filter.redactInPlace(unchangedSet));
+  }
+
+  @Test
+  public final void testObjectsAreProjectedToColumns() {
+    final Telemetry first = new Telemetry();
+    first.flag = true;
+    first.count = 1;
+    first.timestamp = 10L;
+    first.name = "first";
+    final Telemetry second = new Telemetry();
+    second.count = 2;
+    second.timestamp = 20L;
+
+    final ColumnarProjection projection = buildFilter().
+                                            forClass(Telemetry.class).
+                                            useView(TelemetryValues.class).
+                                            build().
+                                            projectColumns(Arrays.asList(first, second), Telemetry.class);
+
+    assertEquals("Projection does not match.", 2, projection.getSize());
+    assertArrayEquals("Column does not match.", new int[] { 1, 2 }, (int[]) projection.getColumn("count"));
+    assertArrayEquals("Column does not match.", new long[] { 10L, 20L },
+                      (long[]) projection.getColumn("timestamp"));
+    assertArrayEquals("Column does not match.",
+                      new Object[] { "first", null }, (Object[]) projection.getColumn("name"));
+    assertArrayEquals("Column does not match.",
+                      new boolean[] { true, false }, (boolean[]) projection.getColumn("flag"));
+    assertFalse("Excluded field was projected.", projection.getFieldNames().contains("initialized"));
+  }
+
+  public static interface MapsView extends View {}
+
+  public static final class Maps {
+
+    @InView(MapsView.class) public Map<String, OtherClass> unmodifiable;
+    @InView(MapsView.class) public Map<String, OtherClass> singleton;
+    @InView(MapsView.class) public Map<String, OtherClass> empty;
+    @InView(MapsView.class) public Map<String, OtherClass> sorted;
+    @InView(MapsView.class) public Map<String, String> strings;
+
+  }
+
+  @Test
+  public final void testUnmodifiableMapsAreFiltered() {
+    final Map<String, OtherClass> sorted = new TreeMap<String, OtherClass>(Collections.reverseOrder());
+    sorted.put("a", new OtherClass("first", "second"));
+    sorted.put("b", new OtherClass("third", "fourth"));
+
+    final Maps objectToClone = new Maps();
+    objectToClone.unmodifiable = Collections.unmodifiableMap(
+            new HashMap<String, OtherClass>(Collections.singletonMap("a", new OtherClass("first", "second"))));
+    objectToClone.singleton = Collections.singletonMap("a", new OtherClass("first", "second"));
+    objectToClone.empty = Collections.emptyMap();
+    objectToClone.sorted = Collections.unmodifiableSortedMap((TreeMap<String, OtherClass>) sorted);
+    objectToClone.strings = Collections.singletonMap("key", "value");
+
+    for (final AccessStrategy accessStrategy : AccessStrategy.values()) {
+      final Maps clone = buildFilter().
+                           forClasses(Maps.class, OtherClass.class).
+                           useViews(MapsView.class, FirstFieldOtherClass.class).
+                           useAccessStrategy(accessStrategy).
+                           applyTo(objectToClone);
+
+      final Map<String, OtherClass> expected =
+              Collections.singletonMap("a", new OtherClass("first", null));
+      assertEquals("Clone does not match expected object.", expected, clone.unmodifiable);
+      assertEquals("Clone does not match expected object.", expected, clone.singleton);
+      assertEquals("Clone does not match expected object.", Collections.emptyMap(), clone.empty);
+      assertEquals("Clone does not match expected object.",
+                   Arrays.asList("b", "a"), new ArrayList<String>(clone.sorted.keySet()));
+      assertEquals("Clone does not match expected object.", new OtherClass("third", null), clone.sorted.get("b"));
+      assertEquals("Clone does not match expected object.", objectToClone.strings, clone.strings);
+
+      try {
+        clone.unmodifiable.put("b", null);
+        fail("Copy of unmodifiable map is modifiable.");
+      } catch (final UnsupportedOperationException exception) {
+        // expected
+      }
+    }
+  }
+
+  public static interface TenantView extends View {}
+
+  public static final class TenantScoped {
+
+    // e.g., set by a request filter
+    public static String currentTenant = null;
+
+    @InView(TenantView.class) public String name;
+    public String tenant = currentTenant;
+
+  }
+
+  @Test
+  public final void testFieldsInitializedFromContextAreReset() {
+    final TenantScoped objectToClone = new TenantScoped();
+    objectToClone.name = "name";
+    objectToClone.tenant = "tenant";
+
+    try {
+      for (final String currentTenant : Arrays.asList(null, "tenantA")) {
+        TenantScoped.currentTenant = currentTenant;
+
+        for (final AccessStrategy accessStrategy : AccessStrategy.values()) {
+          final TenantScoped clone = buildFilter().
+                                       forClass(TenantScoped.class).
+                                       useView(TenantView.class).
+                                       useAccessStrategy(accessStrategy).
+                                       applyTo(objectToClone);
+
+          assertEquals("Clone does not match expected object.", "name", clone.name);
+          assertNull("Excluded field was not reset.", clone.tenant);
+        }
+      }
+    } finally {
+      TenantScoped.currentTenant = null;
+    }
+  }
+
 }